@@ -0,0 +1,72 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.PostcodesClientConfig;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole client calls - URL building, the HTTP exchange over loopback and
+ * parsing - against a {@link StubPostcodesServer} answering immediately, so
+ * the numbers are the client overhead a real call pays on top of the network
+ * and the Postcodes.io latency.
+ *
+ * @author iulian
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ClientEndToEndBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    private StubPostcodesServer server;
+    private PostcodesClient client;
+    private List<String> postcodes;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubPostcodesServer();
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setApiRootPath(server.getApiRootPath());
+        client = new PostcodesClient(config);
+
+        postcodes = Payloads.postcodes(BULK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Response<PostcodeVO> lookupPostcode() {
+        return client.lookupPostcode("SW1A 1AA");
+    }
+
+    @Benchmark
+    public Response<List<MultiResponse<String, PostcodeVO>>> bulkPostcodeLookup() {
+        return client.bulkPostcodeLookup(postcodes);
+    }
+}
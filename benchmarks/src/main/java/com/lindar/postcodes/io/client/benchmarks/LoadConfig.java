@@ -0,0 +1,38 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import lombok.Data;
+
+/**
+ * Shape of the load a {@link LoadGenerator} puts on a client
+ *
+ * @author iulian
+ */
+@Data
+public class LoadConfig {
+
+    /**
+     * Client calls made concurrently, each thread makes the next call as soon
+     * as the previous one returned
+     */
+    private int threads = 8;
+
+    /**
+     * Calls made during the warm up are not measured
+     */
+    private long warmupMillis = 2000;
+
+    private long durationMillis = 10000;
+
+    private Operation operation = Operation.LOOKUP;
+
+    /**
+     * Postcodes or geolocations per call of the bulk operations
+     */
+    private int bulkSize = 100;
+
+    /**
+     * Size of the pool of postcodes the calls pick from. A pool smaller than
+     * the number of calls makes a client cache hit
+     */
+    private int distinctPostcodes = 10000;
+}
@@ -0,0 +1,187 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.PostcodesClientConfig;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed loop load driver: a fixed number of threads call the client back to
+ * back for a fixed time and the latency of every call is kept, so the report
+ * has exact percentiles rather than estimated ones.
+ * <p>
+ * Its main method runs the client against a {@link StubPostcodesServer}, with
+ * the settings given as name=value arguments. The names are the properties of
+ * {@link LoadConfig}, {@link StubServerConfig} and a few client settings, for
+ * example
+ * <pre>
+ * threads=32 operation=BULK_LOOKUP latencyMillis=20 throttleRate=0.05 maxRetries=2
+ * </pre>
+ *
+ * @author iulian
+ */
+public class LoadGenerator {
+
+    private final PostcodesClient client;
+
+    /**
+     * @param client the client under load
+     */
+    public LoadGenerator(PostcodesClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("You provided a null client");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Runs the warm up and the measurement, blocking until both are over
+     *
+     * @param config
+     * @return the measured calls
+     * @throws InterruptedException when interrupted while waiting for the threads
+     */
+    public LoadReport run(LoadConfig config) throws InterruptedException {
+        if (config == null || config.getThreads() < 1 || config.getDurationMillis() < 1
+                || config.getOperation() == null || config.getDistinctPostcodes() < 1) {
+            throw new IllegalArgumentException("The load needs an operation, at least 1 thread, 1 postcode and a duration");
+        }
+        List<String> postcodes = Payloads.postcodes(config.getDistinctPostcodes());
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(config.getWarmupMillis());
+        long measureUntil = measureFrom + TimeUnit.MILLISECONDS.toNanos(config.getDurationMillis());
+        Caller[] callers = new Caller[config.getThreads()];
+        CountDownLatch done = new CountDownLatch(callers.length);
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = new Caller(config, postcodes, measureFrom, measureUntil, done);
+            Thread thread = new Thread(callers[i], "postcodes-io-load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long calls = 0;
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        for (Caller caller : callers) {
+            calls += caller.calls;
+            caller.statusCounts.forEach((status, count) -> statusCounts.merge(status, count, Long::sum));
+        }
+        long[] latencies = new long[(int) calls];
+        int offset = 0;
+        for (Caller caller : callers) {
+            System.arraycopy(caller.latencies, 0, latencies, offset, caller.calls);
+            offset += caller.calls;
+        }
+        Arrays.sort(latencies);
+        return new LoadReport(calls, config.getDurationMillis(), calls * 1000.0 / config.getDurationMillis(),
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.length > 0 ? latencies[latencies.length - 1] : 0, statusCounts);
+    }
+
+    /**
+     * @param args name=value settings
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        LoadConfig load = new LoadConfig();
+        StubServerConfig server = new StubServerConfig();
+        PostcodesClientConfig client = new PostcodesClientConfig();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+            }
+            String name = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "threads": load.setThreads(Integer.parseInt(value)); break;
+                case "warmupMillis": load.setWarmupMillis(Long.parseLong(value)); break;
+                case "durationMillis": load.setDurationMillis(Long.parseLong(value)); break;
+                case "operation": load.setOperation(Operation.valueOf(value.toUpperCase(Locale.ROOT))); break;
+                case "bulkSize": load.setBulkSize(Integer.parseInt(value)); break;
+                case "distinctPostcodes": load.setDistinctPostcodes(Integer.parseInt(value)); break;
+                case "latencyMillis": server.setLatencyMillis(Long.parseLong(value)); break;
+                case "latencyJitterMillis": server.setLatencyJitterMillis(Long.parseLong(value)); break;
+                case "errorRate": server.setErrorRate(Double.parseDouble(value)); break;
+                case "errorStatus": server.setErrorStatus(Integer.parseInt(value)); break;
+                case "throttleRate": server.setThrottleRate(Double.parseDouble(value)); break;
+                case "serverThreads": server.setThreads(Integer.parseInt(value)); break;
+                case "maxRetries": client.setMaxRetries(Integer.parseInt(value)); break;
+                case "hedgingEnabled": client.setHedgingEnabled(Boolean.parseBoolean(value)); break;
+                case "cacheEnabled": client.setCacheEnabled(Boolean.parseBoolean(value)); break;
+                case "bulkConcurrency": client.setBulkConcurrency(Integer.parseInt(value)); break;
+                case "adaptiveConcurrencyEnabled": client.setAdaptiveConcurrencyEnabled(Boolean.parseBoolean(value)); break;
+                case "circuitBreakerEnabled": client.setCircuitBreakerEnabled(Boolean.parseBoolean(value)); break;
+                default: throw new IllegalArgumentException("Unknown setting " + name);
+            }
+        }
+
+        try (StubPostcodesServer stub = new StubPostcodesServer(server)) {
+            client.setApiRootPath(stub.getApiRootPath());
+            LoadReport report;
+            try (PostcodesClient postcodesClient = new PostcodesClient(client)) {
+                report = new LoadGenerator(postcodesClient).run(load);
+            }
+            System.out.println(load);
+            System.out.println(server);
+            System.out.printf(Locale.ROOT, "calls %d, %.1f/s, statuses %s%n", report.getCalls(), report.getCallsPerSecond(), report.getStatusCounts());
+            System.out.printf(Locale.ROOT, "latency us p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n", report.getP50Micros(),
+                    report.getP90Micros(), report.getP99Micros(), report.getP999Micros(), report.getMaxMicros());
+            System.out.printf(Locale.ROOT, "server requests %d, throttled %d, failed %d, connections %d, bulk postcodes %d%n",
+                    stub.getRequestCount(), stub.getThrottledCount(), stub.getFailedCount(),
+                    stub.getConnectionCount(), stub.getBulkPostcodeCount());
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private final class Caller implements Runnable {
+
+        private final LoadConfig config;
+        private final List<String> postcodes;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final CountDownLatch done;
+        private final Map<Integer, Long> statusCounts = new TreeMap<>();
+        private long[] latencies = new long[1024];
+        private int calls;
+
+        private Caller(LoadConfig config, List<String> postcodes, long measureFrom, long measureUntil, CountDownLatch done) {
+            this.config = config;
+            this.postcodes = postcodes;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now = System.nanoTime();
+                while (now < measureUntil) {
+                    int status = config.getOperation().call(client, postcodes, config.getBulkSize());
+                    long end = System.nanoTime();
+                    if (now >= measureFrom && end <= measureUntil) {
+                        if (calls == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, calls * 2);
+                        }
+                        latencies[calls++] = TimeUnit.NANOSECONDS.toMicros(end - now);
+                        statusCounts.merge(status, 1L, Long::sum);
+                    }
+                    now = end;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Outcome of a {@link LoadGenerator} run. Latencies are in microseconds and
+ * cover every measured call, failed ones included.
+ *
+ * @author iulian
+ */
+@Data
+public class LoadReport {
+
+    private final long calls;
+    private final long durationMillis;
+    private final double callsPerSecond;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    /**
+     * Number of calls per response status, 500 includes the transport failures
+     */
+    private final Map<Integer, Long> statusCounts;
+}
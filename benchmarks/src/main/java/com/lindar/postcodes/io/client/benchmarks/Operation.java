@@ -0,0 +1,71 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Client calls a {@link LoadGenerator} can make
+ *
+ * @author iulian
+ */
+public enum Operation {
+
+    LOOKUP {
+        @Override
+        int call(PostcodesClient client, List<String> postcodes, int bulkSize) {
+            return client.lookupPostcode(pick(postcodes)).getStatus();
+        }
+    },
+    BULK_LOOKUP {
+        @Override
+        int call(PostcodesClient client, List<String> postcodes, int bulkSize) {
+            List<String> batch = new ArrayList<>(bulkSize);
+            for (int i = 0; i < bulkSize; i++) {
+                batch.add(pick(postcodes));
+            }
+            return client.bulkPostcodeLookup(batch).getStatus();
+        }
+    },
+    VALIDATE {
+        @Override
+        int call(PostcodesClient client, List<String> postcodes, int bulkSize) {
+            return client.validatePostcode(pick(postcodes)).getStatus();
+        }
+    },
+    REVERSE_GEOCODING {
+        @Override
+        int call(PostcodesClient client, List<String> postcodes, int bulkSize) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return client.reverseGeocoding(random.nextDouble(-3, 0), random.nextDouble(51, 54)).getStatus();
+        }
+    },
+    BULK_REVERSE_GEOCODING {
+        @Override
+        int call(PostcodesClient client, List<String> postcodes, int bulkSize) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Geolocation> batch = new ArrayList<>(bulkSize);
+            for (int i = 0; i < bulkSize; i++) {
+                Geolocation geolocation = new Geolocation();
+                geolocation.setLongitude(random.nextDouble(-3, 0));
+                geolocation.setLatitude(random.nextDouble(51, 54));
+                batch.add(geolocation);
+            }
+            return client.bulkReverseGeocoding(batch).getStatus();
+        }
+    };
+
+    /**
+     * @param client
+     * @param postcodes the pool of postcodes to pick from
+     * @param bulkSize items per bulk call
+     * @return the status of the response
+     */
+    abstract int call(PostcodesClient client, List<String> postcodes, int bulkSize);
+
+    private static String pick(List<String> postcodes) {
+        return postcodes.get(ThreadLocalRandom.current().nextInt(postcodes.size()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Postcodes and response bodies built from a postcode recorded from
+ * Postcodes.io, so every benchmark works on the same realistic payloads. Lists
+ * and bulk responses hold distinct postcodes, each with its own outward and
+ * inward codes and coordinates, so nothing is measured on repeated values a
+ * cache or an interning dictionary would make unrealistically cheap.
+ *
+ * @author iulian
+ */
+final class Payloads {
+
+    static final String POSTCODE = load("/payloads/postcode.json");
+
+    private Payloads() {
+    }
+
+    /**
+     * @param count number of postcodes, up to 99000
+     * @return distinct structurally valid postcodes, AB1 0AA, AB1 0AB and so on
+     */
+    static List<String> postcodes(int count) {
+        List<String> postcodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            postcodes.add(String.format(Locale.ROOT, "AB%d %d%c%c", 1 + i / 1000 % 99, i / 100 % 10, 'A' + i / 10 % 10, 'A' + i % 10));
+        }
+        return postcodes;
+    }
+
+    /**
+     * @return the body of a postcode lookup
+     */
+    static String lookup() {
+        return "{\"status\":200,\"result\":" + POSTCODE + "}";
+    }
+
+    /**
+     * @param results number of distinct postcodes
+     * @return the body of a nearest postcodes or query response
+     */
+    static String postcodeList(int results) {
+        List<String> postcodes = postcodes(results);
+        StringBuilder body = new StringBuilder("{\"status\":200,\"result\":[");
+        for (int i = 0; i < results; i++) {
+            body.append(i > 0 ? "," : "").append(postcode(postcodes.get(i), i));
+        }
+        return body.append("]}").toString();
+    }
+
+    /**
+     * @param results number of distinct queries, all of them found
+     * @return the body of a bulk postcode lookup
+     */
+    static String bulkLookup(int results) {
+        List<String> postcodes = postcodes(results);
+        StringBuilder body = new StringBuilder("{\"status\":200,\"result\":[");
+        for (int i = 0; i < results; i++) {
+            String postcode = postcodes.get(i);
+            body.append(i > 0 ? "," : "").append("{\"query\":\"").append(postcode.replace(" ", ""))
+                    .append("\",\"result\":").append(postcode(postcode, i)).append('}');
+        }
+        return body.append("]}").toString();
+    }
+
+    /**
+     * The recorded postcode renamed and moved a little, by up to about 1km
+     */
+    private static String postcode(String postcode, int index) {
+        String outcode = postcode.substring(0, postcode.indexOf(' '));
+        String incode = postcode.substring(postcode.indexOf(' ') + 1);
+        return POSTCODE.replace("\"postcode\":\"SW1A 1AA\"", "\"postcode\":\"" + postcode + "\"")
+                .replace("\"outcode\":\"SW1A\"", "\"outcode\":\"" + outcode + "\"")
+                .replace("\"incode\":\"1AA\"", "\"incode\":\"" + incode + "\"")
+                .replace("\"longitude\":-0.141588", "\"longitude\":" + (-0.141588 + index % 100 / 10000.0))
+                .replace("\"latitude\":51.501009", "\"latitude\":" + (51.501009 + index / 100 % 100 / 10000.0));
+    }
+
+    private static String load(String resource) {
+        try (InputStream in = Payloads.class.getResourceAsStream(resource)) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0;) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8).trim();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writing bulk request bodies into a request stream. The stream hands every
+ * byte to a Blackhole, so what is measured is the JSON encoding.
+ *
+ * @author iulian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBodyBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int size;
+
+    private List<String> postcodes;
+    private List<Geolocation> geolocations;
+
+    @Setup
+    public void setUp() {
+        postcodes = Payloads.postcodes(size);
+        geolocations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Geolocation geolocation = new Geolocation();
+            geolocation.setLongitude(-0.141588 + i / 1000.0);
+            geolocation.setLatitude(51.501009);
+            geolocation.setLimit(10);
+            geolocations.add(geolocation);
+        }
+    }
+
+    @Benchmark
+    public void bulkPostcodes(Blackhole blackhole) throws IOException {
+        JsonRequestBody.bulkPostcodes(postcodes).writeTo(new BlackholeOutputStream(blackhole));
+    }
+
+    @Benchmark
+    public void bulkGeolocations(Blackhole blackhole) throws IOException {
+        JsonRequestBody.bulkGeolocations(geolocations).writeTo(new BlackholeOutputStream(blackhole));
+    }
+
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        private BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            blackhole.consume(buffer);
+            blackhole.consume(length);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.google.gson.reflect.TypeToken;
+import com.lindar.postcodes.io.client.util.ResponseReader;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deserializing recorded Postcodes.io responses of 1, 10 and 100 results with
+ * the readers the client uses, straight from a byte stream as they arrive
+ * from the connection.
+ *
+ * @author iulian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int results;
+
+    private final ResponseReader<PostcodeVO> postcodeReader = new ResponseReader<>(new TypeToken<Response<PostcodeVO>>() {
+    });
+    private final ResponseReader<List<PostcodeVO>> postcodeListReader = new ResponseReader<>(new TypeToken<Response<List<PostcodeVO>>>() {
+    });
+    private final ResponseReader<List<MultiResponse<String, PostcodeVO>>> bulkLookupReader = new ResponseReader<>(new TypeToken<Response<List<MultiResponse<String, PostcodeVO>>>>() {
+    });
+
+    private byte[] lookup;
+    private byte[] postcodeList;
+    private byte[] bulkLookup;
+
+    @Setup
+    public void setUp() {
+        lookup = Payloads.lookup().getBytes(StandardCharsets.UTF_8);
+        postcodeList = Payloads.postcodeList(results).getBytes(StandardCharsets.UTF_8);
+        bulkLookup = Payloads.bulkLookup(results).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A lookup has a single result whatever the parameter, it is the baseline
+     * the lists are compared with
+     */
+    @Benchmark
+    public Response<PostcodeVO> lookupPostcode() throws IOException {
+        return postcodeReader.read(new ByteArrayInputStream(lookup), 200);
+    }
+
+    @Benchmark
+    public Response<List<PostcodeVO>> nearestPostcodes() throws IOException {
+        return postcodeListReader.read(new ByteArrayInputStream(postcodeList), 200);
+    }
+
+    @Benchmark
+    public Response<List<MultiResponse<String, PostcodeVO>>> bulkPostcodeLookup() throws IOException {
+        return bulkLookupReader.read(new ByteArrayInputStream(bulkLookup), 200);
+    }
+}
@@ -0,0 +1,388 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.lindar.postcodes.io.client.util.PostcodeNormalizer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process HTTP server answering the Postcodes.io endpoints the client
+ * calls, so pooling, batching and retries can be exercised offline and
+ * reproducibly. Point a client at {@link #getApiRootPath()}.
+ * <p>
+ * Every structurally valid postcode exists, except the ones whose outward
+ * code starts with ZZ. Records are generated from a recorded Postcodes.io
+ * record with the postcode and its coordinates replaced. Latency, server
+ * errors and 429 responses are injected as set in the {@link StubServerConfig}.
+ *
+ * @author iulian
+ */
+public class StubPostcodesServer implements Closeable {
+
+    private static final String ROOT = "/postcodes";
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
+    private static final double BASE_LONGITUDE = -0.141588;
+    private static final double BASE_LATITUDE = 51.501009;
+
+    static {
+        // the server writes the headers and the body separately, without it
+        // every small response waits for the client's delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final StubServerConfig config;
+    private final Random random;
+    private final String recordRest;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong bulkPostcodeCount = new AtomicLong();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts a server answering immediately and successfully
+     *
+     * @throws IOException when the server can't listen
+     */
+    public StubPostcodesServer() throws IOException {
+        this(new StubServerConfig());
+    }
+
+    /**
+     * Starts a server listening on the loopback address
+     *
+     * @param config
+     * @throws IOException when the server can't listen
+     */
+    public StubPostcodesServer(StubServerConfig config) throws IOException {
+        if (config == null || config.getThreads() < 1) {
+            throw new IllegalArgumentException("The stub server needs a config with at least 1 thread");
+        }
+        this.config = config;
+        this.random = new Random(config.getSeed());
+
+        JsonObject record = new JsonParser().parse(Payloads.POSTCODE).getAsJsonObject();
+        for (String generated : new String[]{"postcode", "outcode", "incode", "longitude", "latitude"}) {
+            record.remove(generated);
+        }
+        this.recordRest = record.toString().substring(1);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getPort()), 0);
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "postcodes-io-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the API root path to configure the client with
+     */
+    public String getApiRootPath() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return all requests received, including the throttled and failed ones
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return requests answered with 429
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * @return requests answered with the injected error status
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return postcodes received in bulk lookups, divided by the bulk request
+     * count it gives the average batch size
+     */
+    public long getBulkPostcodeCount() {
+        return bulkPostcodeCount.get();
+    }
+
+    /**
+     * @return distinct client connections seen, a pooled client opens at most
+     * as many as its pool size
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String body = readBody(exchange);
+            requestCount.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+
+            double failure;
+            long delay = config.getLatencyMillis();
+            synchronized (random) {
+                failure = random.nextDouble();
+                if (config.getLatencyJitterMillis() > 0) {
+                    delay += (long) (random.nextDouble() * config.getLatencyJitterMillis());
+                }
+            }
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            if (failure < config.getThrottleRate()) {
+                throttledCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, error(429, "Too many requests"));
+            } else if (failure < config.getThrottleRate() + config.getErrorRate()) {
+                failedCount.incrementAndGet();
+                send(exchange, config.getErrorStatus(), error(config.getErrorStatus(), "Injected failure"));
+            } else {
+                route(exchange, body);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String body) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        boolean postcodesRoot = path.equals(ROOT) || path.equals(ROOT + "/");
+
+        if (postcodesRoot && "POST".equals(exchange.getRequestMethod())) {
+            bulk(exchange, body);
+        } else if (path.equals("/random/postcodes")) {
+            String outcode = query.get("outcode");
+            send(exchange, 200, result(record(syntheticPostcode(outcode != null ? outcode : "SW1A", nextInt(100)))));
+        } else if (postcodesRoot && query.containsKey("q")) {
+            String key = PostcodeNormalizer.key(query.get("q"));
+            send(exchange, 200, result(exists(key) ? "[" + record(key) + "]" : "null"));
+        } else if (postcodesRoot && query.containsKey("lon") && query.containsKey("lat")) {
+            double longitude = Double.parseDouble(query.get("lon"));
+            double latitude = Double.parseDouble(query.get("lat"));
+            send(exchange, 200, result(nearby(longitude, latitude, limit(query.get("limit")))));
+        } else if (path.startsWith(ROOT + "/")) {
+            String[] segments = path.substring(ROOT.length() + 1).split("/");
+            String action = segments.length > 1 ? segments[1] : "";
+            String key = PostcodeNormalizer.key(segments[0]);
+            if (action.equals("validate")) {
+                send(exchange, 200, result(Boolean.toString(exists(key))));
+            } else if (action.equals("autocomplete")) {
+                send(exchange, 200, result(autocomplete(segments[0], limit(query.get("limit")))));
+            } else if (!exists(key)) {
+                send(exchange, 404, error(404, "Postcode not found"));
+            } else if (action.isEmpty()) {
+                send(exchange, 200, result(record(key)));
+            } else if (action.equals("nearest")) {
+                send(exchange, 200, result(nearby(longitude(key), latitude(key), limit(query.get("limit")))));
+            } else {
+                send(exchange, 404, error(404, "Resource not found"));
+            }
+        } else {
+            send(exchange, 404, error(404, "Resource not found"));
+        }
+    }
+
+    private void bulk(HttpExchange exchange, String body) throws IOException {
+        JsonObject request;
+        try {
+            request = new JsonParser().parse(body).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException ex) {
+            send(exchange, 400, error(400, "Invalid JSON submitted"));
+            return;
+        }
+        StringBuilder results = new StringBuilder("[");
+        if (request.has("postcodes")) {
+            JsonArray postcodes = request.getAsJsonArray("postcodes");
+            bulkPostcodeCount.addAndGet(postcodes.size());
+            for (JsonElement postcode : postcodes) {
+                String key = postcode.isJsonNull() ? null : PostcodeNormalizer.key(postcode.getAsString());
+                results.append(results.length() > 1 ? "," : "")
+                        .append("{\"query\":").append(postcode)
+                        .append(",\"result\":").append(exists(key) ? record(key) : "null").append('}');
+            }
+        } else if (request.has("geolocations")) {
+            for (JsonElement element : request.getAsJsonArray("geolocations")) {
+                JsonObject geolocation = element.getAsJsonObject();
+                int limit = limit(geolocation.has("limit") ? geolocation.get("limit").getAsString() : null);
+                results.append(results.length() > 1 ? "," : "")
+                        .append("{\"query\":").append(geolocation)
+                        .append(",\"result\":").append(nearby(geolocation.get("longitude").getAsDouble(),
+                        geolocation.get("latitude").getAsDouble(), limit)).append('}');
+            }
+        } else {
+            send(exchange, 400, error(400, "Invalid data submitted. You need to provide a JSON array"));
+            return;
+        }
+        send(exchange, 200, result(results.append(']').toString()));
+    }
+
+    /**
+     * @return a JSON array of generated postcodes around a point, 10 metres
+     * apart going east
+     */
+    private String nearby(double longitude, double latitude, int limit) {
+        StringBuilder records = new StringBuilder("[");
+        for (int i = 0; i < limit; i++) {
+            String key = syntheticPostcode("SW1A", i);
+            records.append(i > 0 ? "," : "").append(record(key, longitude + i * 0.00015, latitude));
+        }
+        return records.append(']').toString();
+    }
+
+    private String autocomplete(String partialPostcode, int limit) {
+        String prefix = partialPostcode.replaceAll("\\s", "").toUpperCase(Locale.ROOT);
+        if (prefix.isEmpty() || prefix.startsWith("ZZ")) {
+            return "null";
+        }
+        if (PostcodeNormalizer.isValid(prefix)) {
+            return "[\"" + PostcodeNormalizer.normalize(prefix) + "\"]";
+        }
+        String outcode = prefix.length() > 4 ? prefix.substring(0, 4) : prefix;
+        StringBuilder postcodes = new StringBuilder("[");
+        for (int i = 0; i < limit; i++) {
+            String postcode = PostcodeNormalizer.normalize(syntheticPostcode(outcode, i));
+            if (postcode != null) {
+                postcodes.append(postcodes.length() > 1 ? "," : "").append('"').append(postcode).append('"');
+            }
+        }
+        return postcodes.length() > 1 ? postcodes.append(']').toString() : "null";
+    }
+
+    private String record(String key) {
+        return record(key, longitude(key), latitude(key));
+    }
+
+    private String record(String key, double longitude, double latitude) {
+        String outcode = PostcodeNormalizer.outcode(key);
+        String incode = PostcodeNormalizer.incode(key);
+        return "{\"postcode\":\"" + outcode + " " + incode + "\",\"outcode\":\"" + outcode + "\",\"incode\":\"" + incode
+                + "\",\"longitude\":" + longitude + ",\"latitude\":" + latitude + "," + recordRest;
+    }
+
+    private int nextInt(int bound) {
+        synchronized (random) {
+            return random.nextInt(bound);
+        }
+    }
+
+    /**
+     * Coordinates spread within about 7km of Westminster, stable per postcode
+     */
+    private static double longitude(String key) {
+        return BASE_LONGITUDE + Math.floorMod(key.hashCode(), 1000) / 10000.0;
+    }
+
+    private static double latitude(String key) {
+        return BASE_LATITUDE + Math.floorMod(key.hashCode() / 1000, 1000) / 20000.0;
+    }
+
+    private static boolean exists(String key) {
+        return key != null && !key.startsWith("ZZ");
+    }
+
+    /**
+     * @return a compact postcode in the outward code, structurally valid when
+     * the outward code is
+     */
+    private static String syntheticPostcode(String outcode, int index) {
+        return outcode.replaceAll("\\s", "").toUpperCase(Locale.ROOT) + (index / 100 % 10) + (char) ('A' + index / 10 % 10) + (char) ('A' + index % 10);
+    }
+
+    private static int limit(String limit) {
+        try {
+            return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+        } catch (NumberFormatException ex) {
+            return DEFAULT_LIMIT;
+        }
+    }
+
+    private static String result(String json) {
+        return "{\"status\":200,\"result\":" + json + "}";
+    }
+
+    private static String error(int status, String message) {
+        return "{\"status\":" + status + ",\"error\":" + new JsonPrimitive(message) + "}";
+    }
+
+    private static Map<String, String> query(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0;) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
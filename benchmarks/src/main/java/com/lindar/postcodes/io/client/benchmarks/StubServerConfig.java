@@ -0,0 +1,58 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import lombok.Data;
+
+/**
+ * Behaviour of a {@link StubPostcodesServer}. The defaults answer every
+ * request immediately and successfully.
+ *
+ * @author iulian
+ */
+@Data
+public class StubServerConfig {
+
+    /**
+     * Local port to listen on, 0 picks a free one
+     */
+    private int port;
+
+    /**
+     * Added to every response before it is sent
+     */
+    private long latencyMillis;
+
+    /**
+     * Upper bound of a random delay added on top of latencyMillis, so the
+     * latency has a tail
+     */
+    private long latencyJitterMillis;
+
+    /**
+     * Share of the requests, between 0 and 1, answered with errorStatus
+     */
+    private double errorRate;
+
+    /**
+     * Status of the injected errors. 503 by default as the retrying transport
+     * retries it
+     */
+    private int errorStatus = 503;
+
+    /**
+     * Share of the requests, between 0 and 1, answered with 429 Too Many
+     * Requests
+     */
+    private double throttleRate;
+
+    /**
+     * Seeds the injected latency and failures, so a single threaded caller
+     * sees the same sequence on every run
+     */
+    private long seed = 42;
+
+    /**
+     * Number of threads answering requests. Latency is simulated by sleeping,
+     * so it bounds how many delayed requests are in flight
+     */
+    private int threads = 64;
+}
@@ -0,0 +1,68 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.util.PostcodesAPI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building request URLs with the typed {@link PostcodesAPI} builders the
+ * client uses, against formatting the String templates.
+ *
+ * @author iulian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBuildingBenchmark {
+
+    private final PostcodesAPI api = new PostcodesAPI();
+    private final String postcode = "SW1A1AA";
+    private final double longitude = -0.141588;
+    private final double latitude = 51.501009;
+    private final int limit = 10;
+    private final int radius = 500;
+
+    @Benchmark
+    public String lookupPostcode() {
+        return api.lookupPostcode(postcode);
+    }
+
+    @Benchmark
+    public String lookupPostcodeFormatted() {
+        return String.format(api.LOOKUP_POSTCODE, postcode);
+    }
+
+    @Benchmark
+    public String nearestPostcodes() {
+        return api.nearestPostcodes(longitude, latitude, limit, radius, false);
+    }
+
+    @Benchmark
+    public String nearestPostcodesFormatted() {
+        return String.format(api.NEAREST_POSTCODES + PostcodesClient.AND + PostcodesClient.LIMIT_QUERY
+                + PostcodesClient.AND + PostcodesClient.RADIUS_QUERY, longitude, latitude, limit, radius);
+    }
+
+    @Benchmark
+    public String nearestPostcodesForPostcode() {
+        return api.nearestPostcodesForPostcode(postcode, limit, radius);
+    }
+
+    @Benchmark
+    public String nearestPostcodesForPostcodeFormatted() {
+        return String.format(api.NEAREST_POSTCODES_FOR_POSTCODE + PostcodesClient.START + PostcodesClient.LIMIT_QUERY
+                + PostcodesClient.AND + PostcodesClient.RADIUS_QUERY, postcode, limit, radius);
+    }
+}
@@ -0,0 +1,87 @@
+package com.lindar.postcodes.io.client.benchmarks;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.PostcodesClientConfig;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class StubPostcodesServerTest {
+
+    @Test
+    public void testClientReadsEveryEndpoint() throws IOException {
+        try (StubPostcodesServer server = new StubPostcodesServer();
+             PostcodesClient client = new PostcodesClient(server.getApiRootPath())) {
+
+            Response<PostcodeVO> lookup = client.lookupPostcode("sw1a 1aa");
+            assertEquals(200, lookup.getStatus());
+            assertEquals("SW1A 1AA", lookup.getData().getPostcode());
+            assertEquals("Westminster", lookup.getData().getAdminDistrict());
+            assertEquals(404, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+            assertTrue(client.validatePostcode("M1 1AE").getData());
+            assertFalse(client.validatePostcode("ZZ1 1ZZ").getData());
+            assertEquals(5, client.nearestPostcodesForPostcode("M1 1AE", 5).getData().size());
+            assertEquals(3, client.reverseGeocoding(-0.14, 51.5, 3).getData().size());
+            assertEquals(200, client.randomPostcode().getStatus());
+            assertEquals("SW1A 1AA", client.queryForPostcode("SW1A1AA").getData().get(0).getPostcode());
+            assertFalse(client.autocompletePartialPostcode("SW1A").getData().isEmpty());
+            // sequential calls, the 404s included, reuse a single pooled connection
+            assertEquals(1, server.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testBulkLookupIsSentInBatchesOf100() throws IOException {
+        try (StubPostcodesServer server = new StubPostcodesServer();
+             PostcodesClient client = new PostcodesClient(server.getApiRootPath())) {
+            List<String> postcodes = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                postcodes.add(String.format("AB1 %d%c%c", i / 100, 'A' + i / 10 % 10, 'A' + i % 10));
+            }
+
+            Response<List<MultiResponse<String, PostcodeVO>>> response = client.bulkPostcodeLookup(postcodes);
+
+            assertEquals(200, response.getStatus());
+            assertEquals(250, response.getData().size());
+            assertEquals("AB1 2EJ", response.getData().get(249).getResults().get(0).getPostcode());
+            assertEquals(3, server.getRequestCount());
+            assertEquals(250, server.getBulkPostcodeCount());
+        }
+    }
+
+    @Test
+    public void testRetriesRecoverFromInjectedThrottling() throws Exception {
+        StubServerConfig serverConfig = new StubServerConfig();
+        serverConfig.setThrottleRate(0.2);
+        try (StubPostcodesServer server = new StubPostcodesServer(serverConfig)) {
+            PostcodesClientConfig config = new PostcodesClientConfig();
+            config.setApiRootPath(server.getApiRootPath());
+            config.setMaxRetries(10);
+            config.setRetryBaseBackoffMillis(1);
+            config.setRetryBudgetRatio(1);
+            LoadConfig load = new LoadConfig();
+            load.setThreads(4);
+            load.setWarmupMillis(0);
+            load.setDurationMillis(300);
+
+            LoadReport report;
+            try (PostcodesClient client = new PostcodesClient(config)) {
+                report = new LoadGenerator(client).run(load);
+            }
+
+            assertTrue(report.getCalls() > 0);
+            assertEquals(Long.valueOf(report.getCalls()), report.getStatusCounts().get(200));
+            assertTrue(server.getThrottledCount() > 0);
+            assertTrue(report.getP50Micros() <= report.getP99Micros());
+        }
+    }
+}
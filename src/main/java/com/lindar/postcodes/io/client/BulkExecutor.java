@@ -0,0 +1,47 @@
+package com.lindar.postcodes.io.client;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the background work of a client - bulk chunks, coalesced batches,
+ * stale refreshes - on the bulk executor and remembers which threads are
+ * running it. Work already running on the executor never waits for another
+ * task queued on it, it does that work inline instead, so a bounded executor
+ * can't end up with every thread waiting for tasks stuck in its own queue.
+ *
+ * @author iulian
+ */
+final class BulkExecutor implements Executor {
+
+    private static final ThreadLocal<BulkExecutor> CURRENT = new ThreadLocal<>();
+
+    private final Executor executor;
+
+    BulkExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            BulkExecutor previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true when the calling thread is running a task of this executor
+     */
+    boolean isCurrentThread() {
+        return CURRENT.get() == this;
+    }
+}
@@ -0,0 +1,38 @@
+package com.lindar.postcodes.io.client;
+
+import java.util.List;
+
+/**
+ * Thrown while iterating the results of a streaming bulk request when a chunk
+ * of it failed. The results of that chunk are skipped, iteration can go on
+ * with the next chunk.
+ *
+ * @author iulian
+ */
+public class BulkLookupException extends RuntimeException {
+
+    private static final long serialVersionUID = 3604398226750329478L;
+
+    private final int status;
+    private final transient List<?> queries;
+
+    public BulkLookupException(int status, List<?> queries) {
+        super("A bulk request chunk of " + queries.size() + " queries failed with status " + status);
+        this.status = status;
+        this.queries = queries;
+    }
+
+    /**
+     * @return the status of the failed chunk
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the queries of the failed chunk, so they can be retried or recorded
+     */
+    public List<?> getQueries() {
+        return queries;
+    }
+}
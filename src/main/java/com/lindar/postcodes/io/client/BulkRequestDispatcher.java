@@ -0,0 +1,88 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Splits bulk queries larger than the Postcodes.io bulk limit into chunks,
+ * sends the chunks concurrently and merges the results back in input order.
+ * A bulk request dispatched from a task already running on the executor sends
+ * its chunks one after the other on that thread rather than waiting for the
+ * executor.
+ *
+ * @author iulian
+ */
+final class BulkRequestDispatcher {
+
+    private final BulkExecutor executor;
+    private final int maxInFlight;
+
+    BulkRequestDispatcher(BulkExecutor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The bulk concurrency needs to be at least 1");
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends the queries in chunks of at most chunkSize items, keeping at most
+     * maxInFlight chunks in flight. If any chunk fails the status of the first
+     * failed chunk is returned along with the results of the chunks that
+     * succeeded. Every query of a chunk answered with no data gets a null
+     * result, so the results always line up with the queries
+     */
+    <Q, R> Response<List<MultiResponse<Q, R>>> dispatch(List<Q> queries, int chunkSize,
+                                                         Function<List<Q>, Response<List<MultiResponse<Q, R>>>> request) {
+        boolean inline = executor.isCurrentThread();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<List<Q>> chunks = new ArrayList<>();
+        List<CompletableFuture<Response<List<MultiResponse<Q, R>>>>> responses = new ArrayList<>();
+        for (int from = 0; from < queries.size(); from += chunkSize) {
+            List<Q> chunk = new ArrayList<>(queries.subList(from, Math.min(from + chunkSize, queries.size())));
+            chunks.add(chunk);
+            if (inline) {
+                responses.add(CompletableFuture.completedFuture(request.apply(chunk)));
+                continue;
+            }
+            inFlight.acquireUninterruptibly();
+            responses.add(CompletableFuture.supplyAsync(() -> request.apply(chunk), executor)
+                    .whenComplete((response, error) -> inFlight.release()));
+        }
+
+        Response<List<MultiResponse<Q, R>>> merged = Response.of(200, new ArrayList<>(queries.size()));
+        for (int i = 0; i < chunks.size(); i++) {
+            Response<List<MultiResponse<Q, R>>> chunkResponse = join(responses.get(i));
+            if (chunkResponse.getStatus() != 200 && merged.getStatus() == 200) {
+                merged.setStatus(chunkResponse.getStatus());
+            }
+            if (chunkResponse.getData() != null) {
+                merged.getData().addAll(chunkResponse.getData());
+            } else {
+                for (Q query : chunks.get(i)) {
+                    MultiResponse<Q, R> unanswered = new MultiResponse<>();
+                    unanswered.setQuery(query);
+                    merged.getData().add(unanswered);
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
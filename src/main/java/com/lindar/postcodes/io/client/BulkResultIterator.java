@@ -0,0 +1,126 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Streams the results of a bulk request over an input of any size. Queries
+ * are pulled from the input one chunk at a time and at most maxInFlight
+ * chunks are sent or waiting to be consumed at any moment, so memory stays
+ * bounded by (maxInFlight + 1) * chunkSize whatever the input size and a slow
+ * consumer simply stops new chunks from being sent. Results come out in
+ * input order.
+ *
+ * @author iulian
+ * @param <Q> query type
+ * @param <R> result type
+ */
+final class BulkResultIterator<Q, R> implements Iterator<MultiResponse<Q, R>>, AutoCloseable {
+
+    private final Iterator<Q> queries;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final Executor executor;
+    private final Function<List<Q>, Response<List<MultiResponse<Q, R>>>> request;
+    private final Deque<Chunk<Q, R>> inFlight = new ArrayDeque<>();
+    private Iterator<MultiResponse<Q, R>> current = Collections.emptyIterator();
+    private boolean closed;
+
+    BulkResultIterator(Iterator<Q> queries, int chunkSize, int maxInFlight, Executor executor,
+                       Function<List<Q>, Response<List<MultiResponse<Q, R>>>> request) {
+        this.queries = queries;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+        this.request = request;
+    }
+
+    /**
+     * @throws BulkLookupException when the next chunk failed, the iterator
+     * can still be used to go on with the following chunks
+     */
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            fill();
+            Chunk<Q, R> chunk = inFlight.poll();
+            if (chunk == null) {
+                return false;
+            }
+            Response<List<MultiResponse<Q, R>>> response = join(chunk.response);
+            fill();
+            if (response.getStatus() != 200) {
+                throw new BulkLookupException(response.getStatus(), chunk.queries);
+            }
+            current = response.getData() != null ? response.getData().iterator() : Collections.emptyIterator();
+        }
+        return true;
+    }
+
+    @Override
+    public MultiResponse<Q, R> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stops sending chunks and drops the ones not consumed yet
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Chunk<Q, R> chunk : inFlight) {
+            chunk.response.cancel(false);
+        }
+        inFlight.clear();
+        current = Collections.emptyIterator();
+    }
+
+    private void fill() {
+        while (!closed && inFlight.size() < maxInFlight && queries.hasNext()) {
+            List<Q> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && queries.hasNext()) {
+                chunk.add(queries.next());
+            }
+            inFlight.add(new Chunk<>(chunk, CompletableFuture.supplyAsync(() -> request.apply(chunk), executor)));
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static final class Chunk<Q, R> {
+
+        private final List<Q> queries;
+        private final CompletableFuture<Response<List<MultiResponse<Q, R>>>> response;
+
+        private Chunk(List<Q> queries, CompletableFuture<Response<List<MultiResponse<Q, R>>>> response) {
+            this.queries = queries;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects single postcode lookups that arrive within a short window and sends
+ * them as one bulk lookup. A batch is sent when the window closes or as soon as
+ * it holds the maximum bulk size of distinct postcodes, whichever comes first.
+ * Each caller gets its own single lookup response back. A batch that can't be
+ * sent or whose bulk lookup throws fails the lookups of all its callers.
+ *
+ * @author iulian
+ */
+final class PostcodeLookupCoalescer {
+
+    private final Function<List<String>, Response<List<MultiResponse<String, PostcodeVO>>>> bulkLookup;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<String, List<CompletableFuture<Response<PostcodeVO>>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    PostcodeLookupCoalescer(Function<List<String>, Response<List<MultiResponse<String, PostcodeVO>>>> bulkLookup,
+                            ScheduledExecutorService scheduler, Executor executor, long windowMillis, int maxBatchSize) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("The coalescing window can't be negative");
+        }
+        this.bulkLookup = bulkLookup;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    CompletableFuture<Response<PostcodeVO>> lookup(String postcode) {
+        CompletableFuture<Response<PostcodeVO>> future = new CompletableFuture<>();
+        Map<String, List<CompletableFuture<Response<PostcodeVO>>>> fullBatch = null;
+        synchronized (lock) {
+            if (closed) {
+                future.completeExceptionally(new RejectedExecutionException("The client is closed"));
+                return future;
+            }
+            pending.computeIfAbsent(postcode, key -> new ArrayList<>(1)).add(future);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private Map<String, List<CompletableFuture<Response<PostcodeVO>>>> takePending() {
+        Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    /**
+     * Fails the lookups waiting for the next batch and any lookup made from
+     * now on
+     */
+    void close() {
+        Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch;
+        synchronized (lock) {
+            closed = true;
+            batch = takePending();
+        }
+        fail(batch, new RejectedExecutionException("The client is closed"));
+    }
+
+    private void send(Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch) {
+        try {
+            executor.execute(() -> {
+                try {
+                    complete(batch, bulkLookup.apply(new ArrayList<>(batch.keySet())));
+                } catch (Throwable ex) {
+                    // callers wait with no timeout, they must be released whatever happens
+                    fail(batch, ex);
+                    throw ex;
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            fail(batch, ex);
+        }
+    }
+
+    private static void fail(Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch, Throwable error) {
+        batch.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(error)));
+    }
+
+    private static void complete(Map<String, List<CompletableFuture<Response<PostcodeVO>>>> batch,
+                                 Response<List<MultiResponse<String, PostcodeVO>>> bulkResponse) {
+        if (bulkResponse.getData() != null) {
+            for (MultiResponse<String, PostcodeVO> item : bulkResponse.getData()) {
+                List<CompletableFuture<Response<PostcodeVO>>> futures = batch.remove(item.getQuery());
+                if (futures != null) {
+                    PostcodeVO result = item.getResults() == null || item.getResults().isEmpty() ? null : item.getResults().get(0);
+                    Response<PostcodeVO> response = result != null ? Response.of(200, result) : Response.of(404, null);
+                    futures.forEach(future -> future.complete(response));
+                }
+            }
+        }
+        int missingStatus = bulkResponse.getStatus() == 200 ? 404 : bulkResponse.getStatus();
+        batch.values().forEach(futures -> futures.forEach(future -> future.complete(Response.of(missingStatus, null))));
+    }
+}
@@ -0,0 +1,321 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.transport.PooledHttpTransport;
+import com.lindar.postcodes.io.client.util.DaemonThreadFactory;
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous flavour of {@link PostcodesClient}. Every method returns
+ * straight away with a {@link CompletableFuture} that completes once
+ * Postcodes.io answers, so a single caller thread can keep many lookups in
+ * flight.
+ * <p>
+ * The requests are blocking calls run on an executor. The default one has as
+ * many threads as the client has connections, see
+ * {@link PostcodesClientConfig#setMaxConnections(int)}, so a burst of calls
+ * queues up instead of starting a thread per call that would only wait for a
+ * connection.
+ *
+ * @author iulian
+ */
+public class PostcodesAsyncClient implements Closeable {
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    private final PostcodesClient client;
+    private final Executor executor;
+
+    /**
+     * The client and the executor this client created itself, closed with it
+     */
+    private final boolean ownsClient;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Creates an asynchronous Postcodes.io client with the default API root
+     * path: http://api.postcodes.io/ and the default executor
+     */
+    public PostcodesAsyncClient() {
+        this(new PostcodesClient(), true);
+    }
+
+    /**
+     * Creates an asynchronous Postcodes.io client with a custom Postcodes.io
+     * API root path and the default executor
+     *
+     * @param postCodesApiRoot the custom Postcodes.io API root path
+     * @throws IllegalArgumentException when the argument provided is blank
+     */
+    public PostcodesAsyncClient(String postCodesApiRoot) {
+        this(new PostcodesClient(postCodesApiRoot), true);
+    }
+
+    /**
+     * Creates an asynchronous Postcodes.io client tuned by the given config,
+     * with the default executor
+     *
+     * @param config the client config
+     * @throws IllegalArgumentException when the config is null or holds an
+     * invalid value
+     */
+    public PostcodesAsyncClient(PostcodesClientConfig config) {
+        this(new PostcodesClient(config), true);
+    }
+
+    /**
+     * Creates an asynchronous client on top of an existing client, using the
+     * default executor: up to as many daemon threads as the client has
+     * connections. The client stays open when this one is closed
+     *
+     * @param client the client the requests are delegated to
+     */
+    public PostcodesAsyncClient(PostcodesClient client) {
+        this(client, false);
+    }
+
+    /**
+     * Creates an asynchronous client on top of an existing client, running the
+     * requests on the given executor. Neither of them is closed with this client
+     *
+     * @param client the client the requests are delegated to
+     * @param executor the executor the requests are run on
+     * @throws IllegalArgumentException when any of the arguments is null
+     */
+    public PostcodesAsyncClient(PostcodesClient client, Executor executor) {
+        if (client == null || executor == null) {
+            throw new IllegalArgumentException("Both the client and the executor are required");
+        }
+        this.client = client;
+        this.executor = executor;
+        this.ownsClient = false;
+        this.ownedExecutor = null;
+    }
+
+    private PostcodesAsyncClient(PostcodesClient client, boolean ownsClient) {
+        if (client == null) {
+            throw new IllegalArgumentException("You provided a null client");
+        }
+        ThreadPoolExecutor defaultExecutor = new ThreadPoolExecutor(client.getMaxConnections(), client.getMaxConnections(),
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreadFactory("postcodes-io-async"));
+        defaultExecutor.allowCoreThreadTimeOut(true);
+        this.client = client;
+        this.executor = defaultExecutor;
+        this.ownsClient = ownsClient;
+        this.ownedExecutor = defaultExecutor;
+    }
+
+    /**
+     * @see PostcodesClient#lookupPostcode(String)
+     * @param postcode
+     * @return
+     */
+    public CompletableFuture<Response<PostcodeVO>> lookupPostcode(String postcode) {
+        return submit(() -> client.lookupPostcode(postcode));
+    }
+
+    /**
+     * @see PostcodesClient#bulkPostcodeLookup(List)
+     * @param postcodes
+     * @return
+     */
+    public CompletableFuture<Response<List<MultiResponse<String, PostcodeVO>>>> bulkPostcodeLookup(List<String> postcodes) {
+        return submit(() -> client.bulkPostcodeLookup(postcodes));
+    }
+
+    /**
+     * @see PostcodesClient#bulkReverseGeocoding(List)
+     * @param geolocations
+     * @return
+     */
+    public CompletableFuture<Response<List<MultiResponse<Geolocation, PostcodeVO>>>> bulkReverseGeocoding(List<Geolocation> geolocations) {
+        return submit(() -> client.bulkReverseGeocoding(geolocations));
+    }
+
+    /**
+     * @see PostcodesClient#nearestPostcodesFor(double, double)
+     * @param longitude
+     * @param latitude
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> nearestPostcodesFor(double longitude, double latitude) {
+        return submit(() -> client.nearestPostcodesFor(longitude, latitude));
+    }
+
+    /**
+     * @see PostcodesClient#reverseGeocoding(double, double)
+     * @param longitude
+     * @param latitude
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> reverseGeocoding(double longitude, double latitude) {
+        return submit(() -> client.reverseGeocoding(longitude, latitude));
+    }
+
+    /**
+     * @see PostcodesClient#reverseGeocoding(double, double, int)
+     * @param longitude
+     * @param latitude
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> reverseGeocoding(double longitude, double latitude, int limit) {
+        return submit(() -> client.reverseGeocoding(longitude, latitude, limit));
+    }
+
+    /**
+     * @see PostcodesClient#reverseGeocoding(double, double, int, int)
+     * @param longitude
+     * @param latitude
+     * @param limit
+     * @param radius
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> reverseGeocoding(double longitude, double latitude, int limit, int radius) {
+        return submit(() -> client.reverseGeocoding(longitude, latitude, limit, radius));
+    }
+
+    /**
+     * @see PostcodesClient#reverseGeocoding(double, double, boolean)
+     * @param longitude
+     * @param latitude
+     * @param wideSearch
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> reverseGeocoding(double longitude, double latitude, boolean wideSearch) {
+        return submit(() -> client.reverseGeocoding(longitude, latitude, wideSearch));
+    }
+
+    /**
+     * @see PostcodesClient#randomPostcode()
+     * @return
+     */
+    public CompletableFuture<Response<PostcodeVO>> randomPostcode() {
+        return submit(() -> client.randomPostcode());
+    }
+
+    /**
+     * @see PostcodesClient#randomPostcode(String)
+     * @param outcode
+     * @return
+     */
+    public CompletableFuture<Response<PostcodeVO>> randomPostcode(String outcode) {
+        return submit(() -> client.randomPostcode(outcode));
+    }
+
+    /**
+     * @see PostcodesClient#validatePostcode(String)
+     * @param postcode
+     * @return
+     */
+    public CompletableFuture<Response<Boolean>> validatePostcode(String postcode) {
+        return submit(() -> client.validatePostcode(postcode));
+    }
+
+    /**
+     * @see PostcodesClient#nearestPostcodesForPostcode(String)
+     * @param postcode
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> nearestPostcodesForPostcode(String postcode) {
+        return submit(() -> client.nearestPostcodesForPostcode(postcode));
+    }
+
+    /**
+     * @see PostcodesClient#nearestPostcodesForPostcode(String, int)
+     * @param postcode
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> nearestPostcodesForPostcode(String postcode, int limit) {
+        return submit(() -> client.nearestPostcodesForPostcode(postcode, limit));
+    }
+
+    /**
+     * @see PostcodesClient#nearestPostcodesForPostcode(String, int, int)
+     * @param postcode
+     * @param limit
+     * @param radius
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> nearestPostcodesForPostcode(String postcode, int limit, int radius) {
+        return submit(() -> client.nearestPostcodesForPostcode(postcode, limit, radius));
+    }
+
+    /**
+     * @see PostcodesClient#autocompletePartialPostcode(String)
+     * @param partialPostcode
+     * @return
+     */
+    public CompletableFuture<Response<List<String>>> autocompletePartialPostcode(String partialPostcode) {
+        return submit(() -> client.autocompletePartialPostcode(partialPostcode));
+    }
+
+    /**
+     * @see PostcodesClient#autocompletePartialPostcode(String, int)
+     * @param partialPostcode
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<Response<List<String>>> autocompletePartialPostcode(String partialPostcode, int limit) {
+        return submit(() -> client.autocompletePartialPostcode(partialPostcode, limit));
+    }
+
+    /**
+     * @see PostcodesClient#queryForPostcode(String)
+     * @param postcode
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> queryForPostcode(String postcode) {
+        return submit(() -> client.queryForPostcode(postcode));
+    }
+
+    /**
+     * @see PostcodesClient#queryForPostcode(String, int)
+     * @param postcode
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<Response<List<PostcodeVO>>> queryForPostcode(String postcode, int limit) {
+        return submit(() -> client.queryForPostcode(postcode, limit));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> request) {
+        return CompletableFuture.supplyAsync(request, executor);
+    }
+
+    /**
+     * Shuts down the default executor, letting the submitted requests finish,
+     * and closes the client when this one created it, once those requests are
+     * done or have had a read timeout to finish. A caller supplied executor or
+     * client is left alone. Requests made after closing are rejected
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (ownsClient) {
+            try {
+                ownedExecutor.awaitTermination(PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            client.close();
+        }
+    }
+}
@@ -1,14 +1,54 @@
 package com.lindar.postcodes.io.client;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import com.lindar.wellrested.WellRestedRequest;
-import com.lindar.wellrested.vo.ResponseVO;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.StringUtils;
+import com.lindar.postcodes.io.client.cache.LruCache;
+import com.lindar.postcodes.io.client.metrics.Endpoint;
+import com.lindar.postcodes.io.client.metrics.PostcodesMetricsListener;
+import com.lindar.postcodes.io.client.metrics.RequestMetrics;
+import com.lindar.postcodes.io.client.offline.OfflinePostcodeIndex;
+import com.lindar.postcodes.io.client.transport.AdaptiveConcurrencyTransport;
+import com.lindar.postcodes.io.client.transport.CircuitBreakerTransport;
+import com.lindar.postcodes.io.client.transport.HedgingTransport;
+import com.lindar.postcodes.io.client.transport.PooledHttpTransport;
+import com.lindar.postcodes.io.client.transport.PostcodesTransport;
+import com.lindar.postcodes.io.client.transport.RateLimitedTransport;
+import com.lindar.postcodes.io.client.transport.RetryBudget;
+import com.lindar.postcodes.io.client.transport.RetryingTransport;
+import com.lindar.postcodes.io.client.util.CountingInputStream;
+import com.lindar.postcodes.io.client.util.DaemonThreadFactory;
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import com.lindar.postcodes.io.client.util.PostcodeNormalizer;
 import com.lindar.postcodes.io.client.util.PostcodesAPI;
+import com.lindar.postcodes.io.client.util.ResponseReader;
+import com.lindar.postcodes.io.client.vo.CacheStats;
 import com.lindar.postcodes.io.client.vo.Geolocation;
-import com.lindar.postcodes.io.client.vo.Geolocations;
 import com.lindar.postcodes.io.client.vo.MultiResponse;
 import com.lindar.postcodes.io.client.vo.PostcodeVO;
 import com.lindar.postcodes.io.client.vo.Response;
@@ -17,7 +57,7 @@ import com.lindar.postcodes.io.client.vo.Response;
  *
  * @author iulian
  */
-public class PostcodesClient {
+public class PostcodesClient implements Closeable {
 
     public static final String START = "?";
     public static final String AND = "&";
@@ -26,13 +66,53 @@ public class PostcodesClient {
     public static final String WIDE_SEARCH_QUERY = "wideSearch=%s";
     public static final String OUTCODE_QUERY = "outcode=%s";
 
+    /**
+     * Maximum number of items Postcodes.io accepts in a single bulk request
+     */
+    public static final int MAX_BULK_SIZE = 100;
+
+    private static final ResponseReader<Boolean> VALIDATION_RESPONSE = new ResponseReader<>(new TypeToken<Response<Boolean>>() {
+    });
+    private static final ResponseReader<List<String>> AUTOCOMPLETE_RESPONSE = new ResponseReader<>(new TypeToken<Response<List<String>>>() {
+    });
+
+    /**
+     * Readers of responses holding postcodes, which depend on the configured postcode fields
+     */
+    private final ResponseReader<PostcodeVO> postcodeResponse;
+    private final ResponseReader<List<PostcodeVO>> postcodeListResponse;
+    private final ResponseReader<List<MultiResponse<String, PostcodeVO>>> bulkLookupResponse;
+    private final ResponseReader<List<MultiResponse<Geolocation, PostcodeVO>>> bulkReverseGeocodingResponse;
+
     private final PostcodesAPI API;
+    private final PostcodesTransport transport;
+    private final int maxConnections;
+    private final BulkExecutor bulkExecutor;
+    private final ExecutorService ownedBulkExecutor;
+    private final ScheduledExecutorService coalescerScheduler;
+    private final int bulkConcurrency;
+    private final BulkRequestDispatcher bulkDispatcher;
+    private final PostcodeLookupCoalescer lookupCoalescer;
+    private final LruCache<String, PostcodeVO> postcodeCache;
+    private final LruCache<String, Boolean> validationCache;
+    private final LruCache<String, Boolean> negativeCache;
+    private final SingleFlight<Object, Response<?>> singleFlight;
+    private final OfflinePostcodeIndex offlineIndex;
+    private final CircuitBreakerTransport circuitBreaker;
+    private final PostcodesMetricsListener metricsListener;
+    private final boolean staleFallbackEnabled;
+    private final long staleIfSlowMillis;
+
+    /**
+     * Postcodes served stale while the circuit was open, refreshed once it closes
+     */
+    private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates a Postcodes.io client with the default API root path: http://api.postcodes.io/
      */
     public PostcodesClient() {
-        this.API = new PostcodesAPI();
+        this(new PostcodesClientConfig());
     }
 
     /**
@@ -45,61 +125,465 @@ public class PostcodesClient {
      * please use the empty constructor if you want to use the default API path
      */
     public PostcodesClient(String postCodesApiRoot) {
+        this(apiRootPathConfig(postCodesApiRoot));
+    }
+
+    /**
+     * Creates a Postcodes.io client tuned by the given config
+     *
+     * @param config the client config
+     * @throws IllegalArgumentException when the config is null or holds an
+     * invalid value
+     */
+    public PostcodesClient(PostcodesClientConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("You provided a null config. If you want the defaults then use the default constructor");
+        }
+        this.API = config.getApiRootPath() == null ? new PostcodesAPI() : new PostcodesAPI(config.getApiRootPath());
+        if (config.getMaxConnections() < 1) {
+            throw new IllegalArgumentException("The client needs at least 1 connection");
+        }
+        this.maxConnections = config.getMaxConnections();
+        PostcodesTransport decorated = decorated(config.getTransport() != null ? config.getTransport()
+                : new PooledHttpTransport(maxConnections, PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS, PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS), config);
+        this.circuitBreaker = config.isCircuitBreakerEnabled()
+                ? new CircuitBreakerTransport(decorated, config.getCircuitBreakerFailureRateThreshold(),
+                        config.getCircuitBreakerSlowCallMillis(), config.getCircuitBreakerOpenMillis())
+                : null;
+        this.transport = circuitBreaker != null ? circuitBreaker : decorated;
+        this.ownedBulkExecutor = config.getBulkExecutor() != null ? null : newBulkExecutor();
+        this.bulkExecutor = new BulkExecutor(ownedBulkExecutor != null ? ownedBulkExecutor : config.getBulkExecutor());
+        this.bulkConcurrency = config.getBulkConcurrency();
+        this.bulkDispatcher = new BulkRequestDispatcher(bulkExecutor, bulkConcurrency);
+        this.coalescerScheduler = config.isCoalescingEnabled()
+                ? Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("postcodes-io-coalescer"))
+                : null;
+        this.lookupCoalescer = coalescerScheduler != null
+                ? new PostcodeLookupCoalescer(this::sendBulkPostcodeLookup, coalescerScheduler,
+                        bulkExecutor, config.getCoalescingWindowMillis(), MAX_BULK_SIZE)
+                : null;
+        if (config.isCacheEnabled()) {
+            this.postcodeCache = new LruCache<>(config.getCacheMaximumSize(), config.getCacheTtlMillis(), config.getStaleCacheTtlMillis(),
+                    TimeUnit.MILLISECONDS, config.getCacheWeigher() != null ? config.getCacheWeigher() : postcode -> 1);
+            this.validationCache = new LruCache<>(config.getCacheMaximumSize(), config.getCacheTtlMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.postcodeCache = null;
+            this.validationCache = null;
+        }
+        this.negativeCache = config.isNegativeCacheEnabled()
+                ? new LruCache<>(config.getNegativeCacheMaximumSize(), config.getNegativeCacheTtlMillis(), TimeUnit.MILLISECONDS)
+                : null;
+        this.singleFlight = config.isRequestDeduplicationEnabled() ? new SingleFlight<>() : null;
+        this.offlineIndex = config.getOfflineIndex();
+        this.metricsListener = config.getMetricsListener() != null ? config.getMetricsListener() : PostcodesMetricsListener.NOOP;
+        this.staleFallbackEnabled = postcodeCache != null && config.getStaleCacheTtlMillis() > 0;
+        this.staleIfSlowMillis = staleFallbackEnabled ? config.getStaleIfSlowMillis() : 0;
+        if (circuitBreaker != null && staleFallbackEnabled) {
+            circuitBreaker.addListener(state -> {
+                if (state == CircuitBreakerTransport.State.CLOSED) {
+                    bulkExecutor.execute(this::refreshStaleKeys);
+                }
+            });
+        }
+        this.postcodeResponse = new ResponseReader<>(new TypeToken<Response<PostcodeVO>>() {
+        }, config.getPostcodeFields());
+        this.postcodeListResponse = new ResponseReader<>(new TypeToken<Response<List<PostcodeVO>>>() {
+        }, config.getPostcodeFields());
+        this.bulkLookupResponse = new ResponseReader<>(new TypeToken<Response<List<MultiResponse<String, PostcodeVO>>>>() {
+        }, config.getPostcodeFields());
+        this.bulkReverseGeocodingResponse = new ResponseReader<>(new TypeToken<Response<List<MultiResponse<Geolocation, PostcodeVO>>>>() {
+        }, config.getPostcodeFields());
+    }
+
+    private static PostcodesClientConfig apiRootPathConfig(String postCodesApiRoot) {
         if (StringUtils.isBlank(postCodesApiRoot)) {
             throw new IllegalArgumentException("You provided a blank Postcodes API root path. If you want to use the default Postcodes.io API root path then use the default constructor");
         }
-        this.API = new PostcodesAPI(postCodesApiRoot);
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setApiRootPath(postCodesApiRoot);
+        return config;
+    }
+
+    /**
+     * The rate limiter goes in front of the concurrency limiter, so requests
+     * waiting for a token don't hold a concurrency slot. Retries and hedges go
+     * in front of both, so every extra request they send is limited as well
+     */
+    private static PostcodesTransport decorated(PostcodesTransport transport, PostcodesClientConfig config) {
+        PostcodesTransport decorated = transport;
+        if (config.isAdaptiveConcurrencyEnabled()) {
+            int maxLimit = config.getMaxConcurrency();
+            decorated = new AdaptiveConcurrencyTransport(decorated, Math.min(AdaptiveConcurrencyTransport.DEFAULT_INITIAL_LIMIT, maxLimit),
+                    AdaptiveConcurrencyTransport.DEFAULT_MIN_LIMIT, maxLimit);
+        }
+        if (config.getRateLimitPerSecond() > 0) {
+            decorated = new RateLimitedTransport(decorated, config.getRateLimitPerSecond(), config.getRateLimitBurst());
+        }
+        RetryBudget budget = new RetryBudget(config.getRetryBudgetRatio(), RetryBudget.DEFAULT_RESERVE);
+        if (config.isHedgingEnabled()) {
+            decorated = new HedgingTransport(decorated, config.getHedgingPercentile(), budget);
+        }
+        if (config.getMaxRetries() > 0) {
+            decorated = new RetryingTransport(decorated, config.getMaxRetries(), config.getRetryBaseBackoffMillis(),
+                    config.getRetryMaxBackoffMillis(), budget);
+        }
+        return decorated;
+    }
+
+    private static ExecutorService newBulkExecutor() {
+        return Executors.newCachedThreadPool(new DaemonThreadFactory("postcodes-io-bulk"));
+    }
+
+    /**
+     * @return the configured maximum number of connections
+     */
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Statistics of the postcode cache used by lookups and bulk lookups
+     *
+     * @return the cache statistics or null when caching isn't enabled
+     */
+    public CacheStats getPostcodeCacheStats() {
+        return postcodeCache != null ? postcodeCache.stats() : null;
+    }
+
+    /**
+     * Statistics of the cache used by postcode validations
+     *
+     * @return the cache statistics or null when caching isn't enabled
+     */
+    public CacheStats getValidationCacheStats() {
+        return validationCache != null ? validationCache.stats() : null;
+    }
+
+    /**
+     * Statistics of the cache of not found and invalid postcodes
+     *
+     * @return the cache statistics or null when negative caching isn't enabled
+     */
+    public CacheStats getNegativeCacheStats() {
+        return negativeCache != null ? negativeCache.stats() : null;
     }
 
     /**
      * Lookup a postcode. Returns all available data if found. Returns 404 if
-     * postcode does not exist.
+     * postcode does not exist. When coalescing is enabled the lookup is sent
+     * as part of a bulk lookup together with the other lookups of the same window.
+     * In offline mode the postcode is looked up in the local index instead.
+     * Input that isn't structurally a postcode gets a 404 without any request.
+     * With a stale cache ttl, an expired cached postcode is returned when
+     * Postcodes.io is unavailable or slower than staleIfSlowMillis
      *
      * @param postcode
      * @return
      */
     public Response<PostcodeVO> lookupPostcode(String postcode) {
-        return processGetRequestAndReturnResponse(String.format(API.LOOKUP_POSTCODE, postcode));
+        String key = PostcodeNormalizer.key(postcode);
+        if (key == null) {
+            return Response.of(404, null);
+        }
+        if (offlineIndex != null) {
+            PostcodeVO postcodeVO = offlineIndex.lookup(key);
+            return postcodeVO != null ? Response.of(200, postcodeVO) : Response.of(404, null);
+        }
+        PostcodeVO cached = postcodeCache != null ? postcodeCache.get(key) : null;
+        boolean knownNotFound = cached == null && isKnownNotFound(key);
+        recordCacheLookups(Endpoint.LOOKUP_POSTCODE, cached != null || knownNotFound ? 1 : 0, cached != null || knownNotFound ? 0 : 1);
+        if (cached != null) {
+            return Response.of(200, cached);
+        }
+        if (knownNotFound) {
+            return Response.of(404, null);
+        }
+        PostcodeVO stale = staleFallbackEnabled ? postcodeCache.getStale(key) : null;
+        if (stale == null) {
+            return fetchPostcode(key);
+        }
+        Response<PostcodeVO> response;
+        if (staleIfSlowMillis > 0) {
+            CompletableFuture<Response<PostcodeVO>> fetch = CompletableFuture.supplyAsync(() -> fetchPostcode(key), bulkExecutor);
+            try {
+                response = fetch.get(staleIfSlowMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                // the fetch carries on and refreshes the cache
+                return Response.of(200, stale);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Response.of(200, stale);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new CompletionException(ex.getCause());
+            }
+        } else {
+            response = fetchPostcode(key);
+        }
+        if (isUnavailable(response.getStatus())) {
+            markStale(key);
+            return Response.of(200, stale);
+        }
+        return response;
+    }
+
+    /**
+     * Asks Postcodes.io and caches the answer. A fetch already running on the
+     * bulk executor doesn't wait for a coalesced batch to be sent on it
+     */
+    private Response<PostcodeVO> fetchPostcode(String key) {
+        Response<PostcodeVO> response;
+        if (lookupCoalescer != null && !bulkExecutor.isCurrentThread()) {
+            try {
+                response = lookupCoalescer.lookup(key).join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                if (ex.getCause() instanceof Error) {
+                    throw (Error) ex.getCause();
+                }
+                throw ex;
+            }
+        } else {
+            response = processGetRequestAndReturnResponse(Endpoint.LOOKUP_POSTCODE, API.lookupPostcode(key), postcodeResponse);
+        }
+        if (postcodeCache != null && response.getStatus() == 200 && response.getData() != null) {
+            postcodeCache.put(key, response.getData());
+        } else if (negativeCache != null && response.getStatus() == 404) {
+            negativeCache.put(key, Boolean.TRUE);
+        }
+        return response;
     }
 
     /**
      * Receives a list of postcodes to search for. 
      * Returns a list of matching postcodes and respective available data in the form of a List of MultiResponse objects that contains the query and the list of results for each query
      *
-     * <b>Accepts up to 100 codes</b>
+     * <b>Accepts any number of codes.</b> Lists larger than 100 codes are split in chunks of 100 that are sent
+     * concurrently and merged back in input order. If any chunk fails the status of the first failed chunk is
+     * returned along with the results of the chunks that succeeded. When caching is enabled only the postcodes
+     * missing from the cache are sent. In offline mode every postcode is looked up in the local index instead.
+     * Input that isn't structurally a postcode gets a null result without being sent and formatting variants
+     * of the same postcode are sent once. With a stale cache ttl, the postcodes of failed chunks are served from
+     * their expired cache entries and the status is 200 when every one of them could be.
+     * The list always has one entry per input postcode, postcodes left unanswered by a failed
+     * request get a null result
      *
      * @param postcodes
      * @return
      */
     public Response<List<MultiResponse<String, PostcodeVO>>> bulkPostcodeLookup(List<String> postcodes) {
-        String bulkPostcodesJson = "{\"postcodes\" : [%s]}";
-        String formattedPostcodes = StringUtils.EMPTY;
+        if (offlineIndex != null) {
+            List<MultiResponse<String, PostcodeVO>> results = new ArrayList<>(postcodes.size());
+            for (String postcode : postcodes) {
+                results.add(multiResponse(postcode, offlineIndex.lookup(postcode)));
+            }
+            return Response.of(200, results);
+        }
+        List<MultiResponse<String, PostcodeVO>> results = new ArrayList<>(Collections.nCopies(postcodes.size(), null));
+        Map<String, List<Integer>> missingPositions = new LinkedHashMap<>();
+        int cacheHits = 0;
+        int cacheMisses = 0;
         for (int i = 0; i < postcodes.size(); i++) {
-            if (i == postcodes.size() - 1) {
-                formattedPostcodes += "\"" + postcodes.get(i) + "\"";
+            String postcode = postcodes.get(i);
+            String key = PostcodeNormalizer.key(postcode);
+            PostcodeVO cached = key != null && postcodeCache != null ? postcodeCache.get(key) : null;
+            if (cached != null) {
+                results.set(i, multiResponse(postcode, cached));
+                cacheHits++;
+            } else if (key == null) {
+                results.set(i, multiResponse(postcode, null));
+            } else if (isKnownNotFound(key)) {
+                results.set(i, multiResponse(postcode, null));
+                cacheHits++;
             } else {
-                formattedPostcodes += "\"" + postcodes.get(i) + "\",";
+                missingPositions.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+                cacheMisses++;
+            }
+        }
+
+        recordCacheLookups(Endpoint.BULK_LOOKUP_POSTCODES, cacheHits, cacheMisses);
+
+        int status = 200;
+        if (!missingPositions.isEmpty()) {
+            Response<List<MultiResponse<String, PostcodeVO>>> response = sendBulkPostcodeLookup(new ArrayList<>(missingPositions.keySet()));
+            status = response.getStatus();
+            if (response.getData() != null) {
+                for (MultiResponse<String, PostcodeVO> item : response.getData()) {
+                    List<Integer> positions = missingPositions.get(item.getQuery());
+                    if (positions == null) {
+                        continue;
+                    }
+                    boolean found = item.getResults() != null && !item.getResults().isEmpty();
+                    if (found && postcodeCache != null) {
+                        postcodeCache.put(item.getQuery(), item.getResults().get(0));
+                    } else if (!found && negativeCache != null) {
+                        negativeCache.put(item.getQuery(), Boolean.TRUE);
+                    }
+                    for (int position : positions) {
+                        results.set(position, multiResponse(postcodes.get(position), found ? item.getResults().get(0) : null));
+                    }
+                }
             }
         }
-        return processPostRequestAndReturnResponse(API.BULK_LOOKUP_POSTCODES, String.format(bulkPostcodesJson, formattedPostcodes));
+        if (isUnavailable(status) && staleFallbackEnabled) {
+            boolean allServed = true;
+            for (Map.Entry<String, List<Integer>> missing : missingPositions.entrySet()) {
+                if (results.get(missing.getValue().get(0)) != null) {
+                    continue;
+                }
+                PostcodeVO stale = postcodeCache.getStale(missing.getKey());
+                if (stale == null) {
+                    allServed = false;
+                    continue;
+                }
+                markStale(missing.getKey());
+                for (int position : missing.getValue()) {
+                    results.set(position, multiResponse(postcodes.get(position), stale));
+                }
+            }
+            if (allServed) {
+                status = 200;
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, multiResponse(postcodes.get(i), null));
+            }
+        }
+        return Response.of(status, results);
+    }
+
+    /**
+     * Postcodes.io is down, overloaded or the circuit is open
+     */
+    private static boolean isUnavailable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * Remembers a postcode served stale so it is refreshed once the circuit
+     * closes. Without a circuit breaker the next lookup tries again anyway
+     */
+    private void markStale(String key) {
+        if (circuitBreaker != null) {
+            staleKeys.add(key);
+        }
+    }
+
+    private void refreshStaleKeys() {
+        List<String> keys = new ArrayList<>(staleKeys);
+        staleKeys.removeAll(keys);
+        if (!keys.isEmpty()) {
+            // expired entries miss the cache, so they are all sent and cached again
+            bulkPostcodeLookup(keys);
+        }
+    }
+
+    /**
+     * Streaming bulk postcode lookup for inputs of any size, a file of
+     * millions of rows for example. Postcodes are pulled from the iterator 100
+     * at a time as results are consumed, with at most bulkConcurrency chunks in
+     * flight, so memory use doesn't depend on the input size. Results come out
+     * in input order and go through the cache like {@link #bulkPostcodeLookup(List)}
+     *
+     * @param postcodes
+     * @return the results, whose hasNext() throws {@link BulkLookupException}
+     * when a chunk failed
+     */
+    public Iterator<MultiResponse<String, PostcodeVO>> bulkPostcodeLookup(Iterator<String> postcodes) {
+        return new BulkResultIterator<>(postcodes, MAX_BULK_SIZE, bulkConcurrency, bulkExecutor, this::bulkPostcodeLookup);
+    }
+
+    /**
+     * Stream version of {@link #bulkPostcodeLookup(Iterator)}. Closing the
+     * returned stream stops sending chunks and closes the input stream
+     *
+     * @param postcodes
+     * @return the results, a failed chunk is thrown as {@link BulkLookupException}
+     */
+    public Stream<MultiResponse<String, PostcodeVO>> bulkPostcodeLookup(Stream<String> postcodes) {
+        return stream(postcodes, this::bulkPostcodeLookup);
+    }
+
+    private Response<List<MultiResponse<String, PostcodeVO>>> sendBulkPostcodeLookup(List<String> postcodes) {
+        if (postcodes.size() > MAX_BULK_SIZE) {
+            return bulkDispatcher.dispatch(postcodes, MAX_BULK_SIZE, this::postBulkPostcodeLookup);
+        }
+        return postBulkPostcodeLookup(postcodes);
+    }
+
+    private Response<List<MultiResponse<String, PostcodeVO>>> postBulkPostcodeLookup(List<String> postcodes) {
+        return processPostRequestAndReturnResponse(Endpoint.BULK_LOOKUP_POSTCODES, API.BULK_LOOKUP_POSTCODES, postcodes, JsonRequestBody.bulkPostcodes(postcodes), bulkLookupResponse);
     }
     
     /**
      * Receives a list of geolocations to search for. 
      * Returns a list of matching postcodes and respective available data in the form of a List of MultiResponse objects that contains the query and the list of results for each query
      *
-     * <b>Accepts up to 100 codes</b>
+     * <b>Accepts any number of geolocations.</b> Lists larger than 100 geolocations are split in chunks of 100 that
+     * are sent concurrently and merged back in input order. If any chunk fails the status of the first failed chunk
+     * is returned and the geolocations of the failed chunks get a null result, so the list always has one entry per
+     * input geolocation. Returns a 400, without sending any request, when the coordinates, limit or radius of any
+     * geolocation are out of range
      *
      * @param geolocations
      * @return
      */
     public Response<List<MultiResponse<Geolocation, PostcodeVO>>> bulkReverseGeocoding(List<Geolocation> geolocations) {
-        Geolocations geolocationsObj = new Geolocations();
-        geolocationsObj.setGeolocations(geolocations);
+        for (Geolocation geolocation : geolocations) {
+            if (!isValidGeolocation(geolocation)) {
+                return Response.of(400, null);
+            }
+        }
+        if (offlineIndex != null) {
+            List<MultiResponse<Geolocation, PostcodeVO>> results = new ArrayList<>(geolocations.size());
+            for (Geolocation geolocation : geolocations) {
+                MultiResponse<Geolocation, PostcodeVO> result = new MultiResponse<>();
+                result.setQuery(geolocation);
+                result.setResults(offlineNearest(geolocation.getLongitude(), geolocation.getLatitude(),
+                        geolocation.getLimit(), geolocation.getRadius(), geolocation.isWideSearch()).getData());
+                results.add(result);
+            }
+            return Response.of(200, results);
+        }
+        if (geolocations.size() > MAX_BULK_SIZE) {
+            return bulkDispatcher.dispatch(geolocations, MAX_BULK_SIZE, this::bulkReverseGeocoding);
+        }
+        return processPostRequestAndReturnResponse(Endpoint.BULK_REVERSE_GEOCODING, API.BULK_REVERSE_GEOCODING, geolocations, JsonRequestBody.bulkGeolocations(geolocations), bulkReverseGeocodingResponse);
+    }
 
-        ResponseVO serverResponse = WellRestedRequest.build(API.BULK_REVERSE_GEOCODING).post(geolocationsObj);
+    /**
+     * Streaming bulk reverse geocoding for inputs of any size, see
+     * {@link #bulkPostcodeLookup(Iterator)}
+     *
+     * @param geolocations
+     * @return the results, whose hasNext() throws {@link BulkLookupException}
+     * when a chunk failed
+     */
+    public Iterator<MultiResponse<Geolocation, PostcodeVO>> bulkReverseGeocoding(Iterator<Geolocation> geolocations) {
+        return new BulkResultIterator<>(geolocations, MAX_BULK_SIZE, bulkConcurrency, bulkExecutor, this::bulkReverseGeocoding);
+    }
 
-        return getResponseFromServerResponse(serverResponse);
+    /**
+     * Stream version of {@link #bulkReverseGeocoding(Iterator)}. Closing the
+     * returned stream stops sending chunks and closes the input stream
+     *
+     * @param geolocations
+     * @return the results, a failed chunk is thrown as {@link BulkLookupException}
+     */
+    public Stream<MultiResponse<Geolocation, PostcodeVO>> bulkReverseGeocoding(Stream<Geolocation> geolocations) {
+        return stream(geolocations, this::bulkReverseGeocoding);
+    }
+
+    private <Q, R> Stream<MultiResponse<Q, R>> stream(Stream<Q> queries, Function<List<Q>, Response<List<MultiResponse<Q, R>>>> request) {
+        BulkResultIterator<Q, R> results = new BulkResultIterator<>(queries.iterator(), MAX_BULK_SIZE, bulkConcurrency, bulkExecutor, request);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::close)
+                .onClose(queries::close);
     }
 
     /**
@@ -107,44 +591,70 @@ public class PostcodesClient {
      * default limit of 10, default radius of 100m and defaults the wide search
      * to false 
      * <b>Want more options? Use reverse geocoding methods</b>
+     * Returns a 400, without sending any request, when a coordinate is out of
+     * range
      *
      * @param longitude
      * @param latitude
      * @return
      */
     public Response<List<PostcodeVO>> nearestPostcodesFor(double longitude, double latitude) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES, longitude, latitude));
+        if (!PostcodesAPI.isValidCoordinate(longitude, latitude)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(longitude, latitude, 0, 0, false);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES, API.nearestPostcodes(longitude, latitude, 0, 0, false), postcodeListResponse);
     }
 
     /**
      * Returns nearest postcodes for a given longitude and latitude. Uses
      * default limit of 10, default radius of 100m and defaults the wide search
      * to false 
+     * Returns a 400, without sending any request, when a coordinate is out of
+     * range
      *
      * @param longitude
      * @param latitude
      * @return
      */
-    public Response<PostcodeVO> reverseGeocoding(double longitude, double latitude) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES, longitude, latitude));
+    public Response<List<PostcodeVO>> reverseGeocoding(double longitude, double latitude) {
+        if (!PostcodesAPI.isValidCoordinate(longitude, latitude)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(longitude, latitude, 0, 0, false);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES, API.nearestPostcodes(longitude, latitude, 0, 0, false), postcodeListResponse);
     }
 
     /**
      * Returns nearest postcodes for a given longitude and latitude. The limit
      * needs to be less than 100 Uses a default radius of 100m
+     * Returns a 400, without sending any request, when a coordinate or the
+     * limit is out of range
      *
      * @param longitude
      * @param latitude
      * @param limit
      * @return
      */
-    public Response<PostcodeVO> reverseGeocoding(double longitude, double latitude, int limit) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES + AND + LIMIT_QUERY, longitude, latitude, limit));
+    public Response<List<PostcodeVO>> reverseGeocoding(double longitude, double latitude, int limit) {
+        if (!PostcodesAPI.isValidCoordinate(longitude, latitude) || !PostcodesAPI.isValidLimit(limit)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(longitude, latitude, limit, 0, false);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES, API.nearestPostcodes(longitude, latitude, limit, 0, false), postcodeListResponse);
     }
 
     /**
      * Returns nearest postcodes for a given longitude and latitude. The limit
      * needs to be less than 100 The radius needs to be less than 2000m
+     * Returns a 400, without sending any request, when a coordinate, the limit
+     * or the radius is out of range
      *
      * @param longitude
      * @param latitude
@@ -152,8 +662,14 @@ public class PostcodesClient {
      * @param radius
      * @return
      */
-    public Response<PostcodeVO> reverseGeocoding(double longitude, double latitude, int limit, int radius) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES + AND + LIMIT_QUERY + AND + RADIUS_QUERY, longitude, latitude, limit, radius));
+    public Response<List<PostcodeVO>> reverseGeocoding(double longitude, double latitude, int limit, int radius) {
+        if (!PostcodesAPI.isValidCoordinate(longitude, latitude) || !PostcodesAPI.isValidLimit(limit) || !PostcodesAPI.isValidRadius(radius)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(longitude, latitude, limit, radius, false);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES, API.nearestPostcodes(longitude, latitude, limit, radius, false), postcodeListResponse);
     }
 
     /**
@@ -163,14 +679,22 @@ public class PostcodesClient {
      * wide area can be very expensive, we've created this method to allow you
      * choose to make the trade off between search radius and number of results.
      * When enabled, radius and limits over 10 are ignored.
+     * Returns a 400, without sending any request, when a coordinate is out of
+     * range
      *
      * @param longitude
      * @param latitude
      * @param wideSearch
      * @return
      */
-    public Response<PostcodeVO> reverseGeocoding(double longitude, double latitude, boolean wideSearch) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES + AND + WIDE_SEARCH_QUERY, longitude, latitude, wideSearch));
+    public Response<List<PostcodeVO>> reverseGeocoding(double longitude, double latitude, boolean wideSearch) {
+        if (!PostcodesAPI.isValidCoordinate(longitude, latitude)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(longitude, latitude, 0, 0, wideSearch);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES, API.nearestPostcodes(longitude, latitude, 0, 0, wideSearch), postcodeListResponse);
     }
 
     /**
@@ -180,7 +704,7 @@ public class PostcodesClient {
      * @return
      */
     public Response<PostcodeVO> randomPostcode() {
-        return processGetRequestAndReturnResponse(API.RANDOM_POSTCODE);
+        return processGetRequestAndReturnResponse(Endpoint.RANDOM_POSTCODE, API.RANDOM_POSTCODE, postcodeResponse);
     }
 
     /**
@@ -192,18 +716,43 @@ public class PostcodesClient {
      * @return
      */
     public Response<PostcodeVO> randomPostcode(String outcode) {
-        return processGetRequestAndReturnResponse(String.format(API.RANDOM_POSTCODE + START + OUTCODE_QUERY, outcode));
+        return processGetRequestAndReturnResponse(Endpoint.RANDOM_POSTCODE, API.randomPostcode(outcode), postcodeResponse);
     }
 
     /**
      * Convenience method to validate a postcode. Returns true or false (meaning
-     * valid or invalid respectively)
+     * valid or invalid respectively). In offline mode the postcode is valid
+     * when it is in the local index. Input that isn't structurally a postcode
+     * is invalid without any request
      *
      * @param postcode
      * @return
      */
-    public Response<PostcodeVO> validatePostcode(String postcode) {
-        return processGetRequestAndReturnResponse(String.format(API.VALIDATE_POSTCODE, postcode));
+    public Response<Boolean> validatePostcode(String postcode) {
+        String key = PostcodeNormalizer.key(postcode);
+        if (key == null) {
+            return Response.of(200, Boolean.FALSE);
+        }
+        if (offlineIndex != null) {
+            return Response.of(200, offlineIndex.contains(key));
+        }
+        boolean cached = (validationCache != null && validationCache.get(key) != null)
+                || (postcodeCache != null && postcodeCache.get(key) != null);
+        boolean knownNotFound = !cached && isKnownNotFound(key);
+        recordCacheLookups(Endpoint.VALIDATE_POSTCODE, cached || knownNotFound ? 1 : 0, cached || knownNotFound ? 0 : 1);
+        if (cached) {
+            return Response.of(200, Boolean.TRUE);
+        }
+        if (knownNotFound) {
+            return Response.of(200, Boolean.FALSE);
+        }
+        Response<Boolean> response = processGetRequestAndReturnResponse(Endpoint.VALIDATE_POSTCODE, API.validatePostcode(key), VALIDATION_RESPONSE);
+        if (response.getStatus() == 200 && Boolean.TRUE.equals(response.getData()) && validationCache != null) {
+            validationCache.put(key, Boolean.TRUE);
+        } else if (response.getStatus() == 200 && Boolean.FALSE.equals(response.getData()) && negativeCache != null) {
+            negativeCache.put(key, Boolean.TRUE);
+        }
+        return response;
     }
 
     /**
@@ -213,33 +762,64 @@ public class PostcodesClient {
      * @param postcode
      * @return
      */
-    public Response<PostcodeVO> nearestPostcodesForPostcode(String postcode) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES_FOR_POSTCODE, postcode));
+    public Response<List<PostcodeVO>> nearestPostcodesForPostcode(String postcode) {
+        String key = PostcodeNormalizer.key(postcode);
+        if (key == null) {
+            return Response.of(404, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(key, 0, 0);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES_FOR_POSTCODE, API.nearestPostcodesForPostcode(key, 0, 0), postcodeListResponse);
     }
 
     /**
      * Returns nearest postcodes for a given postcode. Limit needs to be less
      * than 100 Uses a default radius of 100m
+     * Returns a 400, without sending any request, when the limit is out of
+     * range
      *
      * @param postcode
      * @param limit
      * @return
      */
-    public Response<PostcodeVO> nearestPostcodesForPostcode(String postcode, int limit) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES_FOR_POSTCODE + START + LIMIT_QUERY, postcode, limit));
+    public Response<List<PostcodeVO>> nearestPostcodesForPostcode(String postcode, int limit) {
+        if (!PostcodesAPI.isValidLimit(limit)) {
+            return Response.of(400, null);
+        }
+        String key = PostcodeNormalizer.key(postcode);
+        if (key == null) {
+            return Response.of(404, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(key, limit, 0);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES_FOR_POSTCODE, API.nearestPostcodesForPostcode(key, limit, 0), postcodeListResponse);
     }
 
     /**
      * Returns nearest postcodes for a given postcode. Limit needs to be less
      * than 100 Radius needs to be less than 2000m
+     * Returns a 400, without sending any request, when the limit or the radius
+     * is out of range
      *
      * @param postcode
      * @param limit
      * @param radius
      * @return
      */
-    public Response<PostcodeVO> nearestPostcodesForPostcode(String postcode, int limit, int radius) {
-        return processGetRequestAndReturnResponse(String.format(API.NEAREST_POSTCODES_FOR_POSTCODE + START + LIMIT_QUERY + AND + RADIUS_QUERY, postcode, limit));
+    public Response<List<PostcodeVO>> nearestPostcodesForPostcode(String postcode, int limit, int radius) {
+        if (!PostcodesAPI.isValidLimit(limit) || !PostcodesAPI.isValidRadius(radius)) {
+            return Response.of(400, null);
+        }
+        String key = PostcodeNormalizer.key(postcode);
+        if (key == null) {
+            return Response.of(404, null);
+        }
+        if (offlineIndex != null) {
+            return offlineNearest(key, limit, radius);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.NEAREST_POSTCODES_FOR_POSTCODE, API.nearestPostcodesForPostcode(key, limit, radius), postcodeListResponse);
     }
 
     /**
@@ -249,20 +829,34 @@ public class PostcodesClient {
      * @param partialPostcode
      * @return
      */
-    public Response<PostcodeVO> autocompletePartialPostcode(String partialPostcode) {
-        return processGetRequestAndReturnResponse(String.format(API.AUTOCOMPLETE_POSTCODE, partialPostcode));
+    public Response<List<String>> autocompletePartialPostcode(String partialPostcode) {
+        if (StringUtils.isBlank(partialPostcode)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineAutocomplete(partialPostcode, 0);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.AUTOCOMPLETE_POSTCODE, API.autocompletePostcode(partialPostcode, 0), AUTOCOMPLETE_RESPONSE);
     }
 
     /**
      * Convenience method to return a list of matching postcodes starting from
      * the partial post code Limit needs to be less than 100
+     * Returns a 400, without sending any request, when the limit is out of
+     * range
      *
      * @param partialPostcode
      * @param limit
      * @return
      */
-    public Response<PostcodeVO> autocompletePartialPostcode(String partialPostcode, int limit) {
-        return processGetRequestAndReturnResponse(String.format(API.AUTOCOMPLETE_POSTCODE + START + LIMIT_QUERY, partialPostcode, limit));
+    public Response<List<String>> autocompletePartialPostcode(String partialPostcode, int limit) {
+        if (StringUtils.isBlank(partialPostcode) || !PostcodesAPI.isValidLimit(limit)) {
+            return Response.of(400, null);
+        }
+        if (offlineIndex != null) {
+            return offlineAutocomplete(partialPostcode, limit);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.AUTOCOMPLETE_POSTCODE, API.autocompletePostcode(partialPostcode, limit), AUTOCOMPLETE_RESPONSE);
     }
 
     /**
@@ -272,45 +866,222 @@ public class PostcodesClient {
      * @param postcode
      * @return
      */
-    public Response<PostcodeVO> queryForPostcode(String postcode) {
-        return processGetRequestAndReturnResponse(String.format(API.QUERY_POSTCODE, postcode));
+    public Response<List<PostcodeVO>> queryForPostcode(String postcode) {
+        if (StringUtils.isBlank(postcode)) {
+            return Response.of(400, null);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.QUERY_POSTCODE, API.queryPostcode(postcode, 0), postcodeListResponse);
     }
 
     /**
      * Submit a postcode query and receive a complete list of postcode matches
      * and all associated postcode data. Limit needs to be less than 100
+     * Returns a 400, without sending any request, when the limit is out of
+     * range
      *
      * @param postcode
      * @param limit
      * @return
      */
-    public Response<PostcodeVO> queryForPostcode(String postcode, int limit) {
-        return processGetRequestAndReturnResponse(String.format(API.QUERY_POSTCODE + AND + LIMIT_QUERY, postcode, limit));
+    public Response<List<PostcodeVO>> queryForPostcode(String postcode, int limit) {
+        if (StringUtils.isBlank(postcode) || !PostcodesAPI.isValidLimit(limit)) {
+            return Response.of(400, null);
+        }
+        return processGetRequestAndReturnResponse(Endpoint.QUERY_POSTCODE, API.queryPostcode(postcode, limit), postcodeListResponse);
     }
 
-    private <T> Response<T> processGetRequestAndReturnResponse(String url) {
-        ResponseVO serverResponse = WellRestedRequest.build(url).get();
+    /**
+     * Like Postcodes.io, an empty result is reported as a null result
+     */
+    private static boolean isValidGeolocation(Geolocation geolocation) {
+        return PostcodesAPI.isValidCoordinate(geolocation.getLongitude(), geolocation.getLatitude())
+                && PostcodesAPI.isValidLimit(geolocation.getLimit()) && PostcodesAPI.isValidRadius(geolocation.getRadius());
+    }
 
-        return getResponseFromServerResponse(serverResponse);
+    private Response<List<PostcodeVO>> offlineNearest(double longitude, double latitude, int limit, int radius, boolean wideSearch) {
+        List<PostcodeVO> nearest = offlineIndex.nearest(longitude, latitude, limit, radius, wideSearch);
+        return Response.of(200, nearest.isEmpty() ? null : nearest);
     }
 
-    private <T> Response<T> processPostRequestAndReturnResponse(String url, String json) {
-        ResponseVO serverResponse = WellRestedRequest.build(url).post(json);
+    private Response<List<String>> offlineAutocomplete(String partialPostcode, int limit) {
+        List<String> matches = offlineIndex.autocomplete(partialPostcode, limit);
+        return Response.of(200, matches.isEmpty() ? null : matches);
+    }
 
-        return getResponseFromServerResponse(serverResponse);
+    private Response<List<PostcodeVO>> offlineNearest(String postcode, int limit, int radius) {
+        PostcodeVO origin = offlineIndex.lookup(postcode);
+        if (origin == null || !origin.hasLocation()) {
+            return Response.of(404, null);
+        }
+        return offlineNearest(origin.getLongitude(), origin.getLatitude(), limit, radius, false);
     }
 
-    private <T> Response<T> getResponseFromServerResponse(ResponseVO serverResponse) {
-        Response<T> response;
-        if (StringUtils.isNotBlank(serverResponse.getServerResponse())) {
-            Gson gson = new Gson();
-            response = gson.fromJson(serverResponse.getServerResponse(), new TypeToken<Response<T>>() {
-            }.getType());
-        } else {
-            response = new Response<>();
-            response.setStatus(serverResponse.getStatusCode());
+    private boolean isKnownNotFound(String key) {
+        return negativeCache != null && negativeCache.get(key) != null;
+    }
+
+    private static <Q, R> MultiResponse<Q, R> multiResponse(Q query, R result) {
+        MultiResponse<Q, R> multiResponse = new MultiResponse<>();
+        multiResponse.setQuery(query);
+        multiResponse.setResults(result != null ? Collections.singletonList(result) : null);
+        return multiResponse;
+    }
+
+    private <T> Response<T> processGetRequestAndReturnResponse(Endpoint endpoint, String url, ResponseReader<T> responseReader) {
+        return deduplicated(url, () -> send(endpoint, 1, null, (body, handler) -> transport.get(url, handler), responseReader));
+    }
+
+    /**
+     * The body is streamed into the request, the queries it was written from
+     * are what identifies the request for deduplication
+     */
+    private <T> Response<T> processPostRequestAndReturnResponse(Endpoint endpoint, String url, List<?> queries, JsonRequestBody body, ResponseReader<T> responseReader) {
+        return deduplicated(Arrays.asList(url, new ArrayList<>(queries)),
+                () -> send(endpoint, queries.size(), body, (requestBody, handler) -> transport.post(url, requestBody, handler), responseReader));
+    }
+
+    /**
+     * Sends a request, measuring it when a metrics listener is set. Errors
+     * reaching the server are reported as a 500 response. Every started
+     * request is reported as completed, as failed when it throws, for example
+     * on a successful response that isn't the expected JSON
+     */
+    private <T> Response<T> send(Endpoint endpoint, int batchSize, JsonRequestBody body, Call<T> call, ResponseReader<T> responseReader) {
+        PostcodesTransport.BodyHandler<Response<T>> handler = readingWith(responseReader);
+        if (metricsListener == PostcodesMetricsListener.NOOP) {
+            return sendOrFail(call, body, handler);
         }
-        return response;
+        metricsListener.requestStarted(endpoint);
+        long start = System.nanoTime();
+        AtomicLong requestBytes = new AtomicLong();
+        ResponseMeasurement measurement = new ResponseMeasurement();
+        boolean sent = false;
+        try {
+            Response<T> response = sendOrFail(call, body != null ? body.counting(requestBytes::addAndGet) : null, (statusCode, stream) -> {
+                long responseAt = System.nanoTime();
+                CountingInputStream counted = stream != null ? new CountingInputStream(stream) : null;
+                boolean handled = false;
+                try {
+                    Response<T> handledResponse = handler.handle(statusCode, counted);
+                    handled = true;
+                    return handledResponse;
+                } finally {
+                    measurement.record(statusCode, responseAt - start, System.nanoTime() - responseAt,
+                            counted != null ? counted.getCount() : 0, handled);
+                }
+            });
+            sent = true;
+            return response;
+        } finally {
+            if (!sent) {
+                measurement.fail();
+            }
+            long totalNanos = System.nanoTime() - start;
+            metricsListener.requestCompleted(measurement.toMetrics(endpoint, totalNanos, requestBytes.get(), batchSize));
+        }
+    }
+
+    private static <T> Response<T> sendOrFail(Call<T> call, JsonRequestBody body, PostcodesTransport.BodyHandler<Response<T>> handler) {
+        try {
+            return call.send(body, handler);
+        } catch (IOException ex) {
+            return Response.of(500, null);
+        }
+    }
+
+    private void recordCacheLookups(Endpoint endpoint, int hits, int misses) {
+        if ((postcodeCache != null || negativeCache != null) && metricsListener != PostcodesMetricsListener.NOOP) {
+            metricsListener.cacheLookups(endpoint, hits, misses);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Response<T> deduplicated(Object requestKey, Supplier<Response<T>> request) {
+        if (singleFlight == null) {
+            return request.get();
+        }
+        return (Response<T>) singleFlight.execute(requestKey, request::get);
+    }
+
+    /**
+     * Parses the response straight from the body stream
+     */
+    private static <T> PostcodesTransport.BodyHandler<Response<T>> readingWith(ResponseReader<T> responseReader) {
+        return (statusCode, body) -> body == null ? Response.of(statusCode, null) : responseReader.read(body, statusCode);
+    }
+
+    /**
+     * State of the circuit breaker
+     *
+     * @return the state or null when the circuit breaker isn't enabled
+     */
+    public CircuitBreakerTransport.State getCircuitBreakerState() {
+        return circuitBreaker != null ? circuitBreaker.getState() : null;
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+
+        Response<T> send(JsonRequestBody body, PostcodesTransport.BodyHandler<Response<T>> handler) throws IOException;
     }
 
+    /**
+     * What the response handler saw. A hedged request can be handled twice at
+     * the same time: the first response handled without throwing is kept, a
+     * failed one only until another one is handled, and nothing changes once
+     * the metrics are reported
+     */
+    private static final class ResponseMeasurement {
+
+        private int statusCode;
+        private long waitNanos = -1;
+        private long parseNanos;
+        private long responseBytes;
+        private boolean handled;
+        private boolean reported;
+
+        private synchronized void record(int statusCode, long waitNanos, long parseNanos, long responseBytes, boolean handled) {
+            if (reported || this.handled) {
+                return;
+            }
+            this.statusCode = statusCode;
+            this.waitNanos = waitNanos;
+            this.parseNanos = parseNanos;
+            this.responseBytes = responseBytes;
+            this.handled = handled;
+        }
+
+        /**
+         * The response, if any, couldn't be used
+         */
+        private synchronized void fail() {
+            this.statusCode = 0;
+        }
+
+        private synchronized RequestMetrics toMetrics(Endpoint endpoint, long totalNanos, long requestBytes, int batchSize) {
+            reported = true;
+            return new RequestMetrics(endpoint, statusCode, waitNanos >= 0 ? waitNanos : totalNanos, parseNanos, totalNanos,
+                    requestBytes, responseBytes, batchSize);
+        }
+    }
+
+    /**
+     * Closes the transport, releasing its connections, and shuts down the
+     * executors the client created. A bulk executor given in the config is
+     * left running, it belongs to the caller. Lookups waiting to be coalesced
+     * fail with a RejectedExecutionException
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (lookupCoalescer != null) {
+            lookupCoalescer.close();
+            coalescerScheduler.shutdownNow();
+        }
+        if (ownedBulkExecutor != null) {
+            ownedBulkExecutor.shutdown();
+        }
+        transport.close();
+    }
 }
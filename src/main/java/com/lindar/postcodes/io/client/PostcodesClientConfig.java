@@ -0,0 +1,256 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.metrics.PostcodesMetricsListener;
+import com.lindar.postcodes.io.client.offline.OfflinePostcodeIndex;
+import com.lindar.postcodes.io.client.transport.AdaptiveConcurrencyTransport;
+import com.lindar.postcodes.io.client.transport.CircuitBreakerTransport;
+import com.lindar.postcodes.io.client.transport.HedgingTransport;
+import com.lindar.postcodes.io.client.transport.PooledHttpTransport;
+import com.lindar.postcodes.io.client.transport.PostcodesTransport;
+import com.lindar.postcodes.io.client.transport.RetryBudget;
+import com.lindar.postcodes.io.client.transport.RetryingTransport;
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import lombok.Data;
+
+/**
+ * Tuning options for {@link PostcodesClient}. Every option has a sensible
+ * default so only the ones that matter need to be set.
+ *
+ * @author iulian
+ */
+@Data
+public class PostcodesClientConfig {
+
+    /**
+     * Custom Postcodes.io API root path. Leave it null to use the default
+     * Postcodes.io API root path
+     */
+    private String apiRootPath;
+
+    /**
+     * Transport the requests are sent with. Leave it null to use a
+     * {@link PooledHttpTransport} with maxConnections connections and the
+     * default timeouts
+     */
+    private PostcodesTransport transport;
+
+    /**
+     * Maximum number of connections of the default transport. Also the number
+     * of threads of the default executor of a {@link PostcodesAsyncClient}
+     * built on the client, so set it to the connection limit of a custom
+     * transport as well
+     */
+    private int maxConnections = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS;
+
+    /**
+     * Maximum number of requests per second sent to Postcodes.io, enforced
+     * with a token bucket. Requests over the rate wait for their turn. Leave it
+     * at 0 for no limit
+     */
+    private double rateLimitPerSecond;
+
+    /**
+     * Number of requests the rate limiter lets through back to back after an
+     * idle period
+     */
+    private int rateLimitBurst = 10;
+
+    /**
+     * When enabled, the number of requests in flight adapts to how
+     * Postcodes.io copes: it shrinks on 429 and 5xx responses, failures and
+     * growing latency and grows back while requests succeed. Requests over the
+     * limit wait for a slot. See
+     * {@link com.lindar.postcodes.io.client.transport.AdaptiveConcurrencyTransport}
+     */
+    private boolean adaptiveConcurrencyEnabled;
+
+    /**
+     * Upper bound of the adaptive concurrency limit. Keep it at or below the
+     * number of connections of the transport
+     */
+    private int maxConcurrency = AdaptiveConcurrencyTransport.DEFAULT_MAX_LIMIT;
+
+    /**
+     * Maximum number of times a request failing with a network error or
+     * answered with 429, 502, 503 or 504 is retried. Leave it at 0 for no
+     * retries. See {@link com.lindar.postcodes.io.client.transport.RetryingTransport}
+     */
+    private int maxRetries;
+
+    /**
+     * Backoff cap of the first retry, doubled for every next one. The actual
+     * wait is a random time up to the cap
+     */
+    private long retryBaseBackoffMillis = RetryingTransport.DEFAULT_BASE_BACKOFF_MILLIS;
+
+    /**
+     * Maximum backoff cap of a retry
+     */
+    private long retryMaxBackoffMillis = RetryingTransport.DEFAULT_MAX_BACKOFF_MILLIS;
+
+    /**
+     * When enabled, a request that takes longer than the hedgingPercentile of
+     * recent latencies is sent a second time and the first answer wins. See
+     * {@link com.lindar.postcodes.io.client.transport.HedgingTransport}
+     */
+    private boolean hedgingEnabled;
+
+    /**
+     * Latency percentile after which a request is hedged
+     */
+    private double hedgingPercentile = HedgingTransport.DEFAULT_PERCENTILE;
+
+    /**
+     * Retries and hedges allowed per original request, together. Bounds the
+     * extra load they put on Postcodes.io when it is struggling
+     */
+    private double retryBudgetRatio = RetryBudget.DEFAULT_RATIO;
+
+    /**
+     * When enabled, requests fail fast with no call to Postcodes.io once too
+     * many recent requests failed or were slow, until a trial request
+     * succeeds again. See
+     * {@link com.lindar.postcodes.io.client.transport.CircuitBreakerTransport}
+     */
+    private boolean circuitBreakerEnabled;
+
+    /**
+     * Percentage of failed or slow recent requests that opens the circuit
+     */
+    private int circuitBreakerFailureRateThreshold = CircuitBreakerTransport.DEFAULT_FAILURE_RATE_THRESHOLD;
+
+    /**
+     * Requests taking longer than this count as failed for the circuit breaker
+     */
+    private long circuitBreakerSlowCallMillis = CircuitBreakerTransport.DEFAULT_SLOW_CALL_MILLIS;
+
+    /**
+     * How long the circuit stays open before a trial request is let through
+     */
+    private long circuitBreakerOpenMillis = CircuitBreakerTransport.DEFAULT_OPEN_MILLIS;
+
+    /**
+     * Maximum number of 100 item chunks a bulk request larger than 100 items
+     * keeps in flight at the same time
+     */
+    private int bulkConcurrency = 4;
+
+    /**
+     * Executor the chunks of large bulk requests, coalesced lookups and
+     * background refreshes are sent on. It can be bounded: work the client
+     * runs on it never waits for other tasks queued on it. Leave it null to
+     * use a cached pool of daemon threads owned by the client
+     */
+    private Executor bulkExecutor;
+
+    /**
+     * When enabled, single postcode lookups arriving within
+     * coalescingWindowMillis of each other are sent together as one bulk
+     * lookup. Trades a few milliseconds of latency for far fewer requests
+     */
+    private boolean coalescingEnabled;
+
+    /**
+     * How long a coalesced lookup waits for other lookups to join its batch.
+     * A batch is sent earlier as soon as it holds 100 distinct postcodes
+     */
+    private long coalescingWindowMillis = 5;
+
+    /**
+     * When enabled, postcode lookup, validation and bulk lookup results are
+     * cached in process, keyed by the normalized postcode
+     */
+    private boolean cacheEnabled;
+
+    /**
+     * Maximum number of cached postcodes, or their maximum total weight when a
+     * cacheWeigher is set. Least recently used postcodes are evicted first
+     */
+    private long cacheMaximumSize = 10000;
+
+    /**
+     * How long a cached result lives after it was fetched. Postcodes.io data
+     * changes monthly so a day is a safe default
+     */
+    private long cacheTtlMillis = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Computes the weight of a cached postcode, at least 1. Leave it null to
+     * bound the cache by number of entries
+     */
+    private ToIntFunction<PostcodeVO> cacheWeigher;
+
+    /**
+     * How long expired cached postcodes are kept to be served when
+     * Postcodes.io is unavailable: while the circuit is open, on network
+     * errors and on 429 and 5xx responses. Only used when caching is enabled.
+     * Leave it at 0 to never serve expired postcodes
+     */
+    private long staleCacheTtlMillis;
+
+    /**
+     * How long a postcode lookup waits for Postcodes.io before an expired
+     * cached postcode is returned instead. The lookup carries on in the
+     * background and refreshes the cache when it completes. Only used when
+     * staleCacheTtlMillis is set. Leave it at 0 to always wait
+     */
+    private long staleIfSlowMillis;
+
+    /**
+     * When enabled, postcodes that were not found or are invalid are
+     * remembered in a separate cache so repeated bad input doesn't reach
+     * Postcodes.io again. It is bounded on its own so junk input can never
+     * evict cached postcodes
+     */
+    private boolean negativeCacheEnabled;
+
+    /**
+     * Maximum number of remembered not found or invalid postcodes
+     */
+    private long negativeCacheMaximumSize = 10000;
+
+    /**
+     * How long a not found or invalid postcode is remembered. Kept short as
+     * new postcodes go live every month
+     */
+    private long negativeCacheTtlMillis = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * When enabled, concurrent identical requests - same URL and, for bulk
+     * requests, same body - share a single call to Postcodes.io and the same
+     * deserialized response
+     */
+    private boolean requestDeduplicationEnabled;
+
+    /**
+     * Receives the latency, size and status of every request and the cache
+     * hits and misses, per endpoint. Use a
+     * {@link com.lindar.postcodes.io.client.metrics.MicrometerMetricsListener}
+     * to publish them to Micrometer. Leave it null to record nothing
+     */
+    private PostcodesMetricsListener metricsListener;
+
+    /**
+     * Local postcode index to serve postcode lookups, bulk lookups,
+     * validations, nearest postcodes, reverse geocoding, bulk reverse
+     * geocoding and autocomplete from, with no HTTP call. Random postcodes and
+     * postcode queries still go to Postcodes.io. Load it once with
+     * {@link OfflinePostcodeIndex#load(java.nio.file.Path)} and share it
+     * between clients. Leave it null to ask Postcodes.io
+     */
+    private OfflinePostcodeIndex offlineIndex;
+
+    /**
+     * The PostcodeVO fields read from Postcodes.io responses, for example
+     * {@code EnumSet.of(POSTCODE, LONGITUDE, LATITUDE, OUTCODE)}. The other
+     * fields are skipped while parsing and left empty, which makes large
+     * responses much cheaper to read. Leave it null to read every field. Cached
+     * postcodes hold the same fields, results of the offline index hold all of them
+     */
+    private Set<PostcodeField> postcodeFields;
+}
@@ -0,0 +1,63 @@
+package com.lindar.postcodes.io.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical calls: while a call for a key is in
+ * flight, every other caller asking for the same key waits for it and gets
+ * the same result instead of making its own call.
+ *
+ * @author iulian
+ * @param <K> key type
+ * @param <V> result type
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            // waiters must be released whatever the leader throws, errors included
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * @param key
+     * @return the number of callers waiting for the call in flight for the key
+     */
+    int waiting(K key) {
+        CompletableFuture<V> flight = inFlight.get(key);
+        return flight != null ? flight.getNumberOfDependents() : 0;
+    }
+}
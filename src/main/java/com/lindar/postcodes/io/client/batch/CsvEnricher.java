@@ -0,0 +1,224 @@
+package com.lindar.postcodes.io.client.batch;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.util.CsvLineParser;
+import com.lindar.postcodes.io.client.util.PostcodeNormalizer;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends postcode data to every line of a CSV file: reads the file in
+ * batches, normalizes and deduplicates the postcodes of each batch, looks them
+ * up with {@link PostcodesClient#bulkPostcodeLookup(List)} - which sends them
+ * as concurrent chunks of 100 - and writes the enriched lines. Memory use
+ * depends on the batch size only, not on the file size.
+ * <p>
+ * With a checkpoint file the output is forced to disk and the number of rows
+ * written is saved after every batch, so a run that stopped half way resumes
+ * from the last completed batch. The input must not change between the runs.
+ *
+ * @author iulian
+ */
+public class CsvEnricher {
+
+    private static final String ROWS_WRITTEN = "rowsWritten";
+    private static final String OUTPUT_BYTES = "outputBytes";
+
+    private final PostcodesClient client;
+
+    /**
+     * @param client the client the postcodes are looked up with. Restricting
+     * its postcodeFields to the appended fields makes the lookups cheaper
+     */
+    public CsvEnricher(PostcodesClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("You provided a null client");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Runs the enrichment, or resumes it when the checkpoint file exists
+     *
+     * @param config
+     * @return the progress of the completed run
+     * @throws IOException when a file can't be read or written, or a bulk
+     * lookup failed - the run can then be resumed from its checkpoint
+     * @throws IllegalArgumentException when the config is incomplete or the
+     * input has no postcode column
+     */
+    public EnrichmentProgress enrich(CsvEnrichmentConfig config) throws IOException {
+        validate(config);
+        long rowsWritten = 0;
+        long outputBytes = 0;
+        boolean resuming = config.getCheckpoint() != null && Files.exists(config.getCheckpoint());
+        if (resuming) {
+            Properties checkpoint = new Properties();
+            try (InputStream in = Files.newInputStream(config.getCheckpoint())) {
+                checkpoint.load(in);
+            }
+            rowsWritten = Long.parseLong(checkpoint.getProperty(ROWS_WRITTEN));
+            outputBytes = Long.parseLong(checkpoint.getProperty(OUTPUT_BYTES));
+        }
+
+        long start = System.nanoTime();
+        long rowsWrittenThisRun = 0;
+        long rowsEnriched = 0;
+        long postcodesLookedUp = 0;
+        EnrichmentProgress progress = new EnrichmentProgress(rowsWritten, 0, 0, 0, 0);
+        try (BufferedReader reader = Files.newBufferedReader(config.getInput(), StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(config.getOutput(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("The input file " + config.getInput() + " is empty");
+            }
+            int postcodeColumn = postcodeColumn(header, config.getPostcodeColumn());
+
+            channel.truncate(outputBytes);
+            channel.position(outputBytes);
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+            if (!resuming) {
+                writer.write(header);
+                for (PostcodeField field : config.getFields()) {
+                    writer.write(',');
+                    writer.write(field.getJsonName());
+                }
+                writer.write('\n');
+            }
+            for (long skipped = 0; skipped < rowsWritten && reader.readLine() != null; skipped++) {
+                // already written by a previous run
+            }
+
+            List<String> lines = new ArrayList<>(config.getBatchSize());
+            List<String> fields = new ArrayList<>();
+            String[] keys = new String[config.getBatchSize()];
+            while (true) {
+                lines.clear();
+                Set<String> distinctKeys = new LinkedHashSet<>();
+                String line;
+                while (lines.size() < config.getBatchSize() && (line = reader.readLine()) != null) {
+                    CsvLineParser.parse(line, fields);
+                    String key = postcodeColumn < fields.size() ? PostcodeNormalizer.key(fields.get(postcodeColumn)) : null;
+                    keys[lines.size()] = key;
+                    lines.add(line);
+                    if (key != null) {
+                        distinctKeys.add(key);
+                    }
+                }
+                if (lines.isEmpty()) {
+                    break;
+                }
+
+                Map<String, PostcodeVO> postcodes = lookup(new ArrayList<>(distinctKeys), rowsWritten);
+                for (int i = 0; i < lines.size(); i++) {
+                    PostcodeVO postcode = keys[i] != null ? postcodes.get(keys[i]) : null;
+                    writer.write(lines.get(i));
+                    for (PostcodeField field : config.getFields()) {
+                        writer.write(',');
+                        writer.write(postcode != null ? CsvLineParser.escape(field.textValueOf(postcode)) : "");
+                    }
+                    writer.write('\n');
+                    rowsEnriched += postcode != null ? 1 : 0;
+                }
+                writer.flush();
+                rowsWritten += lines.size();
+                rowsWrittenThisRun += lines.size();
+                postcodesLookedUp += distinctKeys.size();
+                if (config.getCheckpoint() != null) {
+                    channel.force(false);
+                    saveCheckpoint(config.getCheckpoint(), rowsWritten, channel.position());
+                }
+
+                progress = new EnrichmentProgress(rowsWritten, rowsWrittenThisRun, rowsEnriched, postcodesLookedUp,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (config.getProgressListener() != null) {
+                    config.getProgressListener().accept(progress);
+                }
+            }
+            writer.flush();
+        }
+        if (config.getCheckpoint() != null) {
+            Files.deleteIfExists(config.getCheckpoint());
+        }
+        return progress;
+    }
+
+    private Map<String, PostcodeVO> lookup(List<String> keys, long rowsWritten) throws IOException {
+        Map<String, PostcodeVO> postcodes = new HashMap<>(keys.size() * 2);
+        if (keys.isEmpty()) {
+            return postcodes;
+        }
+        Response<List<MultiResponse<String, PostcodeVO>>> response = client.bulkPostcodeLookup(keys);
+        if (response.getStatus() != 200) {
+            throw new IOException("The bulk postcode lookup of the rows after row " + rowsWritten
+                    + " failed with status " + response.getStatus());
+        }
+        for (MultiResponse<String, PostcodeVO> item : response.getData()) {
+            if (item.getResults() != null && !item.getResults().isEmpty()) {
+                postcodes.put(item.getQuery(), item.getResults().get(0));
+            }
+        }
+        return postcodes;
+    }
+
+    /**
+     * Written to a temporary file first and moved in place, so a crash never
+     * leaves a half written checkpoint
+     */
+    private static void saveCheckpoint(Path checkpoint, long rowsWritten, long outputBytes) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(ROWS_WRITTEN, Long.toString(rowsWritten));
+        properties.setProperty(OUTPUT_BYTES, Long.toString(outputBytes));
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, null);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int postcodeColumn(String header, String postcodeColumn) {
+        List<String> columns = new ArrayList<>();
+        CsvLineParser.parse(header.startsWith("\uFEFF") ? header.substring(1) : header, columns);
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).trim().equalsIgnoreCase(postcodeColumn)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("The input has no '" + postcodeColumn + "' column");
+    }
+
+    private static void validate(CsvEnrichmentConfig config) {
+        if (config == null || config.getInput() == null || config.getOutput() == null) {
+            throw new IllegalArgumentException("The input and output files are required");
+        }
+        if (config.getFields() == null || config.getFields().isEmpty() || config.getFields().contains(PostcodeField.CODES)) {
+            throw new IllegalArgumentException("At least one field to append is required and CODES can't be appended");
+        }
+        if (config.getBatchSize() < 1) {
+            throw new IllegalArgumentException("The batch size needs to be at least 1");
+        }
+    }
+}
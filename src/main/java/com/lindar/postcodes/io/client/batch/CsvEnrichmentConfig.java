@@ -0,0 +1,60 @@
+package com.lindar.postcodes.io.client.batch;
+
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.Data;
+
+/**
+ * What a {@link CsvEnricher} run reads, appends and writes. Only the input and
+ * output files are required.
+ *
+ * @author iulian
+ */
+@Data
+public class CsvEnrichmentConfig {
+
+    /**
+     * UTF-8 CSV file with a header line
+     */
+    private Path input;
+
+    /**
+     * File the enriched CSV is written to: every input line followed by one
+     * column per appended field
+     */
+    private Path output;
+
+    /**
+     * Name of the input column holding the postcodes, matched ignoring case
+     */
+    private String postcodeColumn = "postcode";
+
+    /**
+     * Postcode fields appended to every line, in this order. Rows whose
+     * postcode isn't found get empty values
+     */
+    private List<PostcodeField> fields = Arrays.asList(PostcodeField.REGION, PostcodeField.LATITUDE,
+            PostcodeField.LONGITUDE, PostcodeField.ADMIN_DISTRICT);
+
+    /**
+     * Number of rows read, looked up and written together. Their distinct
+     * postcodes are sent as concurrent chunks of 100, so this is also how
+     * much work can be lost when a run stops
+     */
+    private int batchSize = 5000;
+
+    /**
+     * File the progress is saved to after every batch. When it exists at the
+     * start of a run, the run resumes where the previous one stopped. It is
+     * deleted when the run completes. Leave it null to always start over
+     */
+    private Path checkpoint;
+
+    /**
+     * Called after every batch with the progress so far
+     */
+    private Consumer<EnrichmentProgress> progressListener;
+}
@@ -0,0 +1,41 @@
+package com.lindar.postcodes.io.client.batch;
+
+import lombok.Data;
+
+/**
+ * Progress of a {@link CsvEnricher} run
+ *
+ * @author iulian
+ */
+@Data
+public class EnrichmentProgress {
+
+    /**
+     * Rows written so far, including the ones written by the runs this one resumed
+     */
+    private final long rowsWritten;
+
+    /**
+     * Rows written by this run
+     */
+    private final long rowsWrittenThisRun;
+
+    /**
+     * Rows of this run whose postcode was found
+     */
+    private final long rowsEnriched;
+
+    /**
+     * Distinct postcodes this run looked up
+     */
+    private final long postcodesLookedUp;
+
+    private final long elapsedMillis;
+
+    /**
+     * @return rows written per second by this run
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? rowsWrittenThisRun * 1000.0 / elapsedMillis : 0;
+    }
+}
@@ -0,0 +1,280 @@
+package com.lindar.postcodes.io.client.cache;
+
+import com.lindar.postcodes.io.client.vo.CacheStats;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded, thread safe, least recently used cache whose entries expire a fixed
+ * time after they were written. The bound is a total weight: by default every
+ * entry weighs 1 so the bound is simply the maximum number of entries.
+ * <p>
+ * Reading an entry moves it to the most recently used end, so every read
+ * writes. To keep concurrent reads from queuing up behind a single lock, the
+ * entries are split by key hash in up to {@value #MAX_SEGMENTS} segments,
+ * each with its own lock, its own least recently used order and an equal
+ * share of the maximum weight. Eviction is least recently used within a
+ * segment. Small caches get a single segment, so their order is exact, and a
+ * value heavier than the share of a segment is never cached.
+ * <p>
+ * With a stale ttl, expired entries are kept for that much longer: they are
+ * misses for {@link #get} but can still be read with {@link #getStale}, to
+ * serve something while the source of the values is unavailable.
+ *
+ * @author iulian
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+    /**
+     * Maximum number of segments, enough to spread the reads of a busy client
+     */
+    static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Minimum weight of a segment, below which the cache gets fewer segments
+     */
+    static final long MIN_SEGMENT_WEIGHT = 64;
+
+    private final long ttlNanos;
+    private final long staleTtlNanos;
+    private final ToIntFunction<? super V> weigher;
+    private final LongSupplier ticker;
+
+    private final Segment<K, V>[] segments;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param maximumSize maximum number of entries
+     * @param ttl how long an entry lives after it was written
+     * @param unit unit of the ttl
+     */
+    public LruCache(long maximumSize, long ttl, TimeUnit unit) {
+        this(maximumSize, ttl, unit, value -> 1);
+    }
+
+    /**
+     * @param maximumWeight maximum total weight of the entries
+     * @param ttl how long an entry lives after it was written
+     * @param unit unit of the ttl
+     * @param weigher computes the weight of a value, needs to be positive
+     */
+    public LruCache(long maximumWeight, long ttl, TimeUnit unit, ToIntFunction<? super V> weigher) {
+        this(maximumWeight, ttl, 0, unit, weigher);
+    }
+
+    /**
+     * @param maximumWeight maximum total weight of the entries
+     * @param ttl how long an entry lives after it was written
+     * @param staleTtl how long an expired entry can still be read with {@link #getStale}
+     * @param unit unit of the ttls
+     * @param weigher computes the weight of a value, needs to be positive
+     */
+    public LruCache(long maximumWeight, long ttl, long staleTtl, TimeUnit unit, ToIntFunction<? super V> weigher) {
+        this(maximumWeight, unit.toNanos(ttl), unit.toNanos(staleTtl), weigher, System::nanoTime);
+    }
+
+    LruCache(long maximumWeight, long ttlNanos, ToIntFunction<? super V> weigher, LongSupplier ticker) {
+        this(maximumWeight, ttlNanos, 0, weigher, ticker);
+    }
+
+    @SuppressWarnings("unchecked")
+    LruCache(long maximumWeight, long ttlNanos, long staleTtlNanos, ToIntFunction<? super V> weigher, LongSupplier ticker) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("The cache maximum size needs to be at least 1");
+        }
+        if (ttlNanos < 1) {
+            throw new IllegalArgumentException("The cache ttl needs to be positive");
+        }
+        if (staleTtlNanos < 0) {
+            throw new IllegalArgumentException("The cache stale ttl can't be negative");
+        }
+        this.ttlNanos = ttlNanos;
+        this.staleTtlNanos = staleTtlNanos;
+        this.weigher = weigher;
+        this.ticker = ticker;
+
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maximumWeight / (segmentCount * 2) >= MIN_SEGMENT_WEIGHT) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the first segments take the remainder so the shares add up to the maximum weight
+            segments[i] = new Segment<>(maximumWeight / segmentCount + (i < maximumWeight % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached value or null when the key isn't cached or its entry expired
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry == null) {
+                value = null;
+            } else {
+                long now = ticker.getAsLong();
+                if (entry.isExpired(now)) {
+                    if (entry.isExpired(now - staleTtlNanos)) {
+                        segment.remove(key, entry);
+                    }
+                    value = null;
+                } else {
+                    value = entry.value;
+                }
+            }
+        }
+        (value != null ? hitCount : missCount).increment();
+        return value;
+    }
+
+    /**
+     * Returns the cached value even when its entry expired, as long as it
+     * expired less than the stale ttl ago. Not counted in the statistics
+     * @param key
+     * @return
+     */
+    public V getStale(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(ticker.getAsLong() - staleTtlNanos)) {
+                segment.remove(key, entry);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * Caches the value, evicting the least recently used entries if the maximum weight is exceeded
+     * @param key
+     * @param value
+     * @throws IllegalArgumentException when the weigher returns a weight below 1
+     */
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        if (weight < 1) {
+            throw new IllegalArgumentException("The cache weigher needs to return a positive weight but returned " + weight);
+        }
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (weight > segment.maximumWeight) {
+                Entry<V> entry = segment.entries.get(key);
+                if (entry != null) {
+                    segment.remove(key, entry);
+                }
+                return;
+            }
+            Entry<V> previous = segment.entries.put(key, new Entry<>(value, weight, ticker.getAsLong() + ttlNanos));
+            if (previous != null) {
+                segment.totalWeight -= previous.weight;
+            }
+            segment.totalWeight += weight;
+
+            Iterator<Map.Entry<K, Entry<V>>> eldest = segment.entries.entrySet().iterator();
+            while (segment.totalWeight > segment.maximumWeight && eldest.hasNext()) {
+                segment.totalWeight -= eldest.next().getValue().weight;
+                eldest.remove();
+                segment.evictionCount++;
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null) {
+                segment.remove(key, entry);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.totalWeight = 0;
+            }
+        }
+    }
+
+    /**
+     * The segments are read one after the other, so under concurrent writes
+     * the statistics are close to but not exactly a single point in time
+     * @return
+     */
+    public CacheStats stats() {
+        long evictionCount = 0;
+        int size = 0;
+        long totalWeight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                evictionCount += segment.evictionCount;
+                size += segment.entries.size();
+                totalWeight += segment.totalWeight;
+            }
+        }
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount, size, totalWeight);
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Guarded by its own monitor
+     */
+    private static final class Segment<K, V> {
+        private final long maximumWeight;
+        private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long totalWeight;
+        private long evictionCount;
+
+        private Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        private void remove(K key, Entry<V> entry) {
+            entries.remove(key);
+            totalWeight -= entry.weight;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long expiresAt;
+
+        private Entry(V value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lindar.postcodes.io.client.metrics;
+
+/**
+ * The Postcodes.io endpoints a {@link com.lindar.postcodes.io.client.PostcodesClient}
+ * calls, named after the URLs of {@link com.lindar.postcodes.io.client.util.PostcodesAPI}
+ *
+ * @author iulian
+ */
+public enum Endpoint {
+    LOOKUP_POSTCODE,
+    BULK_LOOKUP_POSTCODES,
+    NEAREST_POSTCODES_FOR_POSTCODE,
+    NEAREST_POSTCODES,
+    BULK_REVERSE_GEOCODING,
+    RANDOM_POSTCODE,
+    VALIDATE_POSTCODE,
+    AUTOCOMPLETE_POSTCODE,
+    QUERY_POSTCODE
+}
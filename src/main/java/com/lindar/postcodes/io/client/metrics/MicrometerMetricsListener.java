@@ -0,0 +1,108 @@
+package com.lindar.postcodes.io.client.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the client measurements in a Micrometer registry, every meter
+ * tagged with the endpoint:
+ * <ul>
+ * <li>postcodes.io.client.requests - timer of whole requests, also tagged with the status</li>
+ * <li>postcodes.io.client.request.phase - timer of the wait and parse phases, tagged with the phase</li>
+ * <li>postcodes.io.client.request.bytes, postcodes.io.client.response.bytes - body sizes</li>
+ * <li>postcodes.io.client.batch.size - postcodes or geolocations per request</li>
+ * <li>postcodes.io.client.in.flight - gauge of the requests in flight</li>
+ * <li>postcodes.io.client.cache - counter of cache lookups, tagged with the result hit or miss</li>
+ * </ul>
+ * Micrometer is an optional dependency of this library: add it to use this class.
+ *
+ * @author iulian
+ */
+public class MicrometerMetricsListener implements PostcodesMetricsListener {
+
+    private static final String PREFIX = "postcodes.io.client.";
+
+    private final MeterRegistry registry;
+    private final Map<Endpoint, Meters> meters = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Map<Integer, Timer>> requestTimers = new EnumMap<>(Endpoint.class);
+
+    /**
+     * @param registry the registry the meters are registered in
+     */
+    public MicrometerMetricsListener(MeterRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("You provided a null registry");
+        }
+        this.registry = registry;
+        for (Endpoint endpoint : Endpoint.values()) {
+            meters.put(endpoint, new Meters(registry, endpoint));
+            requestTimers.put(endpoint, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void requestStarted(Endpoint endpoint) {
+        meters.get(endpoint).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void requestCompleted(RequestMetrics metrics) {
+        Meters endpointMeters = meters.get(metrics.getEndpoint());
+        endpointMeters.inFlight.decrementAndGet();
+        requestTimers.get(metrics.getEndpoint())
+                .computeIfAbsent(metrics.getStatusCode(), status -> Timer.builder(PREFIX + "requests")
+                        .tag("endpoint", metrics.getEndpoint().name())
+                        .tag("status", status == 0 ? "FAILED" : Integer.toString(status))
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(metrics.getTotalNanos(), TimeUnit.NANOSECONDS);
+        endpointMeters.wait.record(metrics.getWaitNanos(), TimeUnit.NANOSECONDS);
+        if (!metrics.isFailed()) {
+            endpointMeters.parse.record(metrics.getParseNanos(), TimeUnit.NANOSECONDS);
+            endpointMeters.responseBytes.record(metrics.getResponseBytes());
+        }
+        endpointMeters.requestBytes.record(metrics.getRequestBytes());
+        endpointMeters.batchSize.record(metrics.getBatchSize());
+    }
+
+    @Override
+    public void cacheLookups(Endpoint endpoint, int hits, int misses) {
+        Meters endpointMeters = meters.get(endpoint);
+        endpointMeters.cacheHits.increment(hits);
+        endpointMeters.cacheMisses.increment(misses);
+    }
+
+    private static final class Meters {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Timer wait;
+        private final Timer parse;
+        private final DistributionSummary requestBytes;
+        private final DistributionSummary responseBytes;
+        private final DistributionSummary batchSize;
+        private final Counter cacheHits;
+        private final Counter cacheMisses;
+
+        private Meters(MeterRegistry registry, Endpoint endpoint) {
+            String tag = endpoint.name();
+            this.wait = Timer.builder(PREFIX + "request.phase").tag("endpoint", tag).tag("phase", "wait")
+                    .publishPercentileHistogram().register(registry);
+            this.parse = Timer.builder(PREFIX + "request.phase").tag("endpoint", tag).tag("phase", "parse")
+                    .publishPercentileHistogram().register(registry);
+            this.requestBytes = DistributionSummary.builder(PREFIX + "request.bytes").tag("endpoint", tag).baseUnit("bytes").register(registry);
+            this.responseBytes = DistributionSummary.builder(PREFIX + "response.bytes").tag("endpoint", tag).baseUnit("bytes").register(registry);
+            this.batchSize = DistributionSummary.builder(PREFIX + "batch.size").tag("endpoint", tag).register(registry);
+            this.cacheHits = Counter.builder(PREFIX + "cache").tag("endpoint", tag).tag("result", "hit").register(registry);
+            this.cacheMisses = Counter.builder(PREFIX + "cache").tag("endpoint", tag).tag("result", "miss").register(registry);
+            Gauge.builder(PREFIX + "in.flight", inFlight, AtomicInteger::get).tag("endpoint", tag).register(registry);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.lindar.postcodes.io.client.metrics;
+
+/**
+ * Receives the measurements of a {@link com.lindar.postcodes.io.client.PostcodesClient}.
+ * Every method does nothing by default, so an implementation only overrides
+ * what it records. Methods are called on the request threads and must be
+ * thread safe and cheap. Requests shared by deduplication are reported once,
+ * answers served from the cache or the offline index aren't requests.
+ *
+ * @author iulian
+ */
+public interface PostcodesMetricsListener {
+
+    /**
+     * Listener recording nothing, the default
+     */
+    PostcodesMetricsListener NOOP = new PostcodesMetricsListener() {
+    };
+
+    /**
+     * Called when a request is about to be sent
+     *
+     * @param endpoint
+     */
+    default void requestStarted(Endpoint endpoint) {
+    }
+
+    /**
+     * Called when a request completed or failed
+     *
+     * @param metrics
+     */
+    default void requestCompleted(RequestMetrics metrics) {
+    }
+
+    /**
+     * Called after postcodes were looked up in the caches. Every postcode
+     * counts once, so a bulk lookup with the same postcode twice counts it
+     * twice. Input that isn't structurally a postcode is never looked up and
+     * counts as neither
+     *
+     * @param endpoint the endpoint the postcodes would otherwise be sent to
+     * @param hits postcodes answered by the cache or the negative cache
+     * @param misses postcodes that had to be sent
+     */
+    default void cacheLookups(Endpoint endpoint, int hits, int misses) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.lindar.postcodes.io.client.metrics;
+
+import lombok.Data;
+
+/**
+ * Measurements of a single request sent to Postcodes.io. Responses are parsed
+ * while they stream from the connection, so the parse time includes reading
+ * the body and the wait time covers everything before the first byte of the
+ * response: leasing or opening a connection, writing the request and the
+ * server time.
+ *
+ * @author iulian
+ */
+@Data
+public class RequestMetrics {
+
+    private final Endpoint endpoint;
+
+    /**
+     * HTTP status code, 0 when the request failed: no response arrived or the
+     * response body couldn't be read
+     */
+    private final int statusCode;
+
+    /**
+     * Time from sending the request to the response status being available
+     */
+    private final long waitNanos;
+
+    /**
+     * Time spent reading and parsing the response body
+     */
+    private final long parseNanos;
+
+    private final long totalNanos;
+
+    /**
+     * Size of the request body, 0 for GET requests
+     */
+    private final long requestBytes;
+
+    /**
+     * Size of the response body as read from the connection
+     */
+    private final long responseBytes;
+
+    /**
+     * Number of postcodes or geolocations of a bulk request, 1 for the others
+     */
+    private final int batchSize;
+
+    /**
+     * @return true when no usable response arrived
+     */
+    public boolean isFailed() {
+        return statusCode == 0;
+    }
+}
@@ -0,0 +1,374 @@
+package com.lindar.postcodes.io.client.offline;
+
+import com.lindar.postcodes.io.client.util.PostcodeNormalizer;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Immutable in-process postcode index, used by
+ * {@link com.lindar.postcodes.io.client.PostcodesClient} in offline mode.
+ * Postcodes are sorted by their compact form (no whitespace, upper case), so
+ * a lookup is a binary search with no hashing, no boxing and no per-entry map
+ * node, and the postcodes starting with a prefix are a contiguous range found
+ * the same way. A second order of the rows, by outward code then inward code,
+ * does the same for partial postcodes with a space between the two. Their
+ * data is held in {@link PostcodeColumns} rather than as PostcodeVO objects,
+ * and each lookup builds a new PostcodeVO. Their centroids are also indexed
+ * in a grid, which answers nearest postcode queries with the limit, radius
+ * and wide search rules of Postcodes.io. It is thread safe.
+ *
+ * @author iulian
+ */
+public final class OfflinePostcodeIndex {
+
+    /**
+     * Number of nearest postcodes returned when no limit is given
+     */
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Search radius in metres used when no radius is given
+     */
+    public static final int DEFAULT_RADIUS = 100;
+    public static final int MAX_RADIUS = 2000;
+
+    /**
+     * A wide search looks up to 20km away but returns at most 10 postcodes
+     */
+    public static final int WIDE_SEARCH_RADIUS = 20000;
+    public static final int WIDE_SEARCH_MAX_LIMIT = 10;
+
+    /**
+     * Length of the inward code, the part of a postcode after the space
+     */
+    private static final int INCODE_LENGTH = 3;
+
+    private final String[] keys;
+    private final int[] outcodeOrder;
+    private final PostcodeColumns columns;
+    private final PostcodeGrid grid;
+
+    private OfflinePostcodeIndex(String[] keys, PostcodeVO[] postcodes) {
+        this.keys = keys;
+        this.outcodeOrder = outcodeOrder(keys);
+        this.columns = new PostcodeColumns(postcodes);
+        this.grid = new PostcodeGrid(columns);
+    }
+
+    /**
+     * Loads a postcodes.io export or an ONS Postcode Directory CSV file, see
+     * {@link PostcodeCsvReader} for the supported columns. The ONS Postcode
+     * Directory holds area codes rather than names, so most name fields of
+     * its postcodes are null and the codes are in {@link PostcodeVO#getCodes()}
+     *
+     * @param csvFile the UTF-8 CSV file
+     * @return
+     * @throws IOException when the file can't be read
+     */
+    public static OfflinePostcodeIndex load(Path csvFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Loads a postcodes.io export or an ONS Postcode Directory CSV
+     *
+     * @param csv the CSV content, it is not closed by this method
+     * @return
+     * @throws IOException when the CSV can't be read
+     */
+    public static OfflinePostcodeIndex load(Reader csv) throws IOException {
+        List<PostcodeVO> postcodes = new ArrayList<>();
+        PostcodeCsvReader.read(csv, postcodes::add);
+        return of(postcodes);
+    }
+
+    /**
+     * Builds an index of the given postcodes. When a postcode appears more
+     * than once the last one wins
+     *
+     * @param postcodes
+     * @return
+     */
+    public static OfflinePostcodeIndex of(Collection<PostcodeVO> postcodes) {
+        Entry[] entries = new Entry[postcodes.size()];
+        int i = 0;
+        for (PostcodeVO postcode : postcodes) {
+            entries[i] = new Entry(key(postcode.getPostcode()), i, postcode);
+            i++;
+        }
+        Arrays.sort(entries, Comparator.comparing((Entry entry) -> entry.key).thenComparingInt(entry -> entry.order));
+
+        int size = 0;
+        for (int e = 0; e < entries.length; e++) {
+            if (e + 1 < entries.length && entries[e].key.equals(entries[e + 1].key)) {
+                continue;
+            }
+            entries[size++] = entries[e];
+        }
+        String[] keys = new String[size];
+        PostcodeVO[] values = new PostcodeVO[size];
+        for (int e = 0; e < size; e++) {
+            keys[e] = entries[e].key;
+            values[e] = entries[e].postcode;
+        }
+        return new OfflinePostcodeIndex(keys, values);
+    }
+
+    /**
+     * Compact form of a postcode the index is keyed by. Dataset rows that
+     * don't parse as a postcode are still indexed by their upper case
+     * characters, they just can't be looked up
+     *
+     * @param postcode
+     * @return the postcode without whitespace in upper case, an empty string for null
+     */
+    static String key(String postcode) {
+        String key = PostcodeNormalizer.key(postcode);
+        if (key != null) {
+            return key;
+        }
+        return postcode == null ? "" : StringUtils.deleteWhitespace(postcode).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up a postcode, ignoring whitespace and case
+     *
+     * @param postcode
+     * @return a new PostcodeVO with the postcode data or null when the postcode isn't in the index
+     */
+    public PostcodeVO lookup(String postcode) {
+        int position = position(postcode);
+        return position >= 0 ? columns.get(position) : null;
+    }
+
+    /**
+     * @param postcode
+     * @return true when the postcode is in the index
+     */
+    public boolean contains(String postcode) {
+        return position(postcode) >= 0;
+    }
+
+    private int position(String postcode) {
+        String key = PostcodeNormalizer.key(postcode);
+        return key != null ? Arrays.binarySearch(keys, key) : -1;
+    }
+
+    /**
+     * Lists the postcodes starting with a partial postcode, ignoring case and
+     * leading whitespace. A space inside the partial postcode ends the outward
+     * code, so "SW1 1" only matches postcodes of the SW1 district and "SW1 "
+     * doesn't match SW1A ones. Without a space the partial postcode is matched
+     * against the postcodes without their space. The matches are found with a
+     * binary search and listed in alphabetical order
+     *
+     * @param partialPostcode
+     * @param limit maximum number of postcodes returned, the default of 10 when
+     * it isn't positive and never more than 100
+     * @return the matching postcodes, empty when there is none
+     */
+    public List<String> autocomplete(String partialPostcode, int limit) {
+        if (StringUtils.isBlank(partialPostcode)) {
+            return Collections.emptyList();
+        }
+        int effectiveLimit = Math.min(limit > 0 ? limit : DEFAULT_LIMIT, MAX_LIMIT);
+        // the partial postcode is compared in place, a keystroke allocates nothing but the matches
+        int start = 0;
+        while (Character.isWhitespace(partialPostcode.charAt(start))) {
+            start++;
+        }
+        int space = start;
+        while (space < partialPostcode.length() && !Character.isWhitespace(partialPostcode.charAt(space))) {
+            space++;
+        }
+        if (space == partialPostcode.length()) {
+            return keyMatches(partialPostcode, start, effectiveLimit);
+        }
+        return outcodeMatches(partialPostcode, start, space, effectiveLimit);
+    }
+
+    private List<String> keyMatches(String partial, int from, int limit) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparePrefix(keys[middle], 0, partial, from) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<String> matches = new ArrayList<>(Math.min(limit, keys.length - low));
+        for (int i = low; i < keys.length && matches.size() < limit && comparePrefix(keys[i], 0, partial, from) == 0; i++) {
+            matches.add(columns.postcode(i));
+        }
+        return matches;
+    }
+
+    private List<String> outcodeMatches(String partial, int from, int space, int limit) {
+        int low = 0;
+        int high = outcodeOrder.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareOutcodePrefix(keys[outcodeOrder[middle]], partial, from, space) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<String> matches = new ArrayList<>(Math.min(limit, outcodeOrder.length - low));
+        for (int i = low; i < outcodeOrder.length && matches.size() < limit
+                && compareOutcodePrefix(keys[outcodeOrder[i]], partial, from, space) == 0; i++) {
+            matches.add(columns.postcode(outcodeOrder[i]));
+        }
+        return matches;
+    }
+
+    /**
+     * Compares the part of a key from an offset with the rest of a partial
+     * postcode from a position, skipping whitespace and ignoring case
+     *
+     * @return 0 when that part of the key starts with the rest of the partial
+     * postcode, otherwise its order relative to it
+     */
+    private static int comparePrefix(String key, int offset, String partial, int from) {
+        int k = offset;
+        for (int p = from; p < partial.length(); p++) {
+            char c = partial.charAt(p);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (k == key.length()) {
+                return -1;
+            }
+            int difference = key.charAt(k++) - Character.toUpperCase(c);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares a key with the complete outward code of a partial postcode,
+     * from its first character to the space, followed by the start of an
+     * inward code, in the order of {@link #compareByOutcode}
+     *
+     * @return 0 when the key has that outward code and its inward code starts
+     * with the rest of the partial postcode, otherwise the order of the key
+     * relative to them
+     */
+    private static int compareOutcodePrefix(String key, String partial, int from, int space) {
+        int outcodeLength = outcodeLength(key);
+        int length = Math.min(outcodeLength, space - from);
+        for (int i = 0; i < length; i++) {
+            int difference = key.charAt(i) - Character.toUpperCase(partial.charAt(from + i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        int difference = outcodeLength - (space - from);
+        return difference != 0 ? difference : comparePrefix(key, outcodeLength, partial, space);
+    }
+
+    /**
+     * Orders keys by outward code then inward code, which is the order of the
+     * postcodes written with their space
+     */
+    private static int compareByOutcode(String key, String other) {
+        int outcodeLength = outcodeLength(key);
+        int otherOutcodeLength = outcodeLength(other);
+        int difference = compareRegion(key, 0, outcodeLength, other, 0, otherOutcodeLength);
+        return difference != 0 ? difference
+                : compareRegion(key, outcodeLength, key.length(), other, otherOutcodeLength, other.length());
+    }
+
+    private static int compareRegion(String a, int aFrom, int aTo, String b, int bFrom, int bTo) {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < length; i++) {
+            int difference = a.charAt(aFrom + i) - b.charAt(bFrom + i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    private static int outcodeLength(String key) {
+        return Math.max(key.length() - INCODE_LENGTH, 0);
+    }
+
+    private static int[] outcodeOrder(String[] keys) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareByOutcode(keys[a], keys[b]));
+        int[] rows = new int[order.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = order[i];
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the postcodes nearest to a point, ordered by distance. A limit or
+     * radius that isn't positive means the default one and both are capped
+     * to their maximum, like Postcodes.io does. With wide search the radius is
+     * ignored and postcodes up to 20km away are considered, but no more than
+     * 10 are returned
+     *
+     * @param longitude
+     * @param latitude
+     * @param limit
+     * @param radius in metres
+     * @param wideSearch
+     * @return the nearest postcodes, empty when there is none
+     */
+    public List<PostcodeVO> nearest(double longitude, double latitude, int limit, int radius, boolean wideSearch) {
+        int effectiveLimit = Math.min(limit > 0 ? limit : DEFAULT_LIMIT, MAX_LIMIT);
+        int[] rows = wideSearch
+                ? grid.nearestExpanding(longitude, latitude, Math.min(effectiveLimit, WIDE_SEARCH_MAX_LIMIT), WIDE_SEARCH_RADIUS)
+                : grid.nearest(longitude, latitude, effectiveLimit, Math.min(radius > 0 ? radius : DEFAULT_RADIUS, MAX_RADIUS));
+        List<PostcodeVO> nearest = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            nearest.add(columns.get(row));
+        }
+        return nearest;
+    }
+
+    /**
+     * @return the number of postcodes in the index
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final int order;
+        private final PostcodeVO postcode;
+
+        private Entry(String key, int order, PostcodeVO postcode) {
+            this.key = key;
+            this.order = order;
+            this.postcode = postcode;
+        }
+    }
+}
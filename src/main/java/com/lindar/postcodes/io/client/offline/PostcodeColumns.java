@@ -0,0 +1,160 @@
+package com.lindar.postcodes.io.client.offline;
+
+import com.lindar.postcodes.io.client.vo.PostcodeCodes;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Column store of the postcodes of an {@link OfflinePostcodeIndex}. Grid
+ * references and coordinates are kept in primitive arrays and every other
+ * field as an int index into a dictionary shared by all the fields, so a row
+ * costs a postcode string and a few dozen bytes instead of a PostcodeVO, its
+ * codes and their object headers. The PostcodeVO of a row is built on demand
+ * when a lookup returns it.
+ *
+ * @author iulian
+ */
+final class PostcodeColumns {
+
+    private static final List<Column> COLUMNS = Arrays.asList(
+            new Column(PostcodeVO::getQuality, PostcodeVO::setQuality),
+            new Column(PostcodeVO::getCountry, PostcodeVO::setCountry),
+            new Column(PostcodeVO::getNhsHa, PostcodeVO::setNhsHa),
+            new Column(PostcodeVO::getParliamentaryConstituency, PostcodeVO::setParliamentaryConstituency),
+            new Column(PostcodeVO::getEuropeanElectoralRegion, PostcodeVO::setEuropeanElectoralRegion),
+            new Column(PostcodeVO::getPrimaryCareTrust, PostcodeVO::setPrimaryCareTrust),
+            new Column(PostcodeVO::getRegion, PostcodeVO::setRegion),
+            new Column(PostcodeVO::getLsoa, PostcodeVO::setLsoa),
+            new Column(PostcodeVO::getMsoa, PostcodeVO::setMsoa),
+            new Column(PostcodeVO::getIncode, PostcodeVO::setIncode),
+            new Column(PostcodeVO::getOutcode, PostcodeVO::setOutcode),
+            new Column(PostcodeVO::getAdminDistrict, PostcodeVO::setAdminDistrict),
+            new Column(PostcodeVO::getParish, PostcodeVO::setParish),
+            new Column(PostcodeVO::getAdminCounty, PostcodeVO::setAdminCounty),
+            new Column(PostcodeVO::getAdminWard, PostcodeVO::setAdminWard),
+            new Column(PostcodeVO::getCcg, PostcodeVO::setCcg),
+            new Column(PostcodeVO::getNuts, PostcodeVO::setNuts),
+            new Column(code(PostcodeCodes::getAdminDistrict), (postcode, value) -> codes(postcode).setAdminDistrict(value)),
+            new Column(code(PostcodeCodes::getAdminCounty), (postcode, value) -> codes(postcode).setAdminCounty(value)),
+            new Column(code(PostcodeCodes::getAdminWard), (postcode, value) -> codes(postcode).setAdminWard(value)),
+            new Column(code(PostcodeCodes::getParish), (postcode, value) -> codes(postcode).setParish(value)),
+            new Column(code(PostcodeCodes::getCcg), (postcode, value) -> codes(postcode).setCcg(value)),
+            new Column(code(PostcodeCodes::getNuts), (postcode, value) -> codes(postcode).setNuts(value)),
+            new Column(code(PostcodeCodes::getParliamentaryConstituency), (postcode, value) -> codes(postcode).setParliamentaryConstituency(value)),
+            new Column(code(PostcodeCodes::getLsoa), (postcode, value) -> codes(postcode).setLsoa(value)),
+            new Column(code(PostcodeCodes::getMsoa), (postcode, value) -> codes(postcode).setMsoa(value)));
+
+    /**
+     * Dictionary index of a null value
+     */
+    private static final int NULL = -1;
+
+    private final String[] postcodes;
+    private final int[] eastings;
+    private final int[] northings;
+    private final double[] longitudes;
+    private final double[] latitudes;
+    private final int[][] values;
+    private final String[] dictionary;
+
+    /**
+     * @param rows the postcodes, in the order of the rows
+     */
+    PostcodeColumns(PostcodeVO[] rows) {
+        this.postcodes = new String[rows.length];
+        this.eastings = new int[rows.length];
+        this.northings = new int[rows.length];
+        this.longitudes = new double[rows.length];
+        this.latitudes = new double[rows.length];
+        this.values = new int[COLUMNS.size()][rows.length];
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        for (int row = 0; row < rows.length; row++) {
+            PostcodeVO postcode = rows[row];
+            postcodes[row] = postcode.getPostcode();
+            eastings[row] = postcode.getEastings();
+            northings[row] = postcode.getNorthings();
+            longitudes[row] = postcode.getLongitude();
+            latitudes[row] = postcode.getLatitude();
+            for (int column = 0; column < values.length; column++) {
+                String value = COLUMNS.get(column).getter.apply(postcode);
+                if (value == null) {
+                    values[column][row] = NULL;
+                    continue;
+                }
+                Integer index = indexes.get(value);
+                if (index == null) {
+                    index = words.size();
+                    indexes.put(value, index);
+                    words.add(value);
+                }
+                values[column][row] = index;
+            }
+        }
+        this.dictionary = words.toArray(new String[words.size()]);
+    }
+
+    /**
+     * @param row
+     * @return a new PostcodeVO with the data of the row
+     */
+    PostcodeVO get(int row) {
+        PostcodeVO postcode = new PostcodeVO();
+        postcode.setPostcode(postcodes[row]);
+        postcode.setEastings(eastings[row]);
+        postcode.setNorthings(northings[row]);
+        postcode.setLongitude(longitudes[row]);
+        postcode.setLatitude(latitudes[row]);
+        for (int column = 0; column < values.length; column++) {
+            int index = values[column][row];
+            if (index != NULL) {
+                COLUMNS.get(column).setter.accept(postcode, dictionary[index]);
+            }
+        }
+        return postcode;
+    }
+
+    String postcode(int row) {
+        return postcodes[row];
+    }
+
+    double longitude(int row) {
+        return longitudes[row];
+    }
+
+    double latitude(int row) {
+        return latitudes[row];
+    }
+
+    int size() {
+        return postcodes.length;
+    }
+
+    private static Function<PostcodeVO, String> code(Function<PostcodeCodes, String> getter) {
+        return postcode -> postcode.getCodes() != null ? getter.apply(postcode.getCodes()) : null;
+    }
+
+    private static PostcodeCodes codes(PostcodeVO postcode) {
+        if (postcode.getCodes() == null) {
+            postcode.setCodes(new PostcodeCodes());
+        }
+        return postcode.getCodes();
+    }
+
+    private static final class Column {
+
+        private final Function<PostcodeVO, String> getter;
+        private final BiConsumer<PostcodeVO, String> setter;
+
+        private Column(Function<PostcodeVO, String> getter, BiConsumer<PostcodeVO, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
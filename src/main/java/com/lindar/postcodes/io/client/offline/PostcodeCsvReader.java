@@ -0,0 +1,236 @@
+package com.lindar.postcodes.io.client.offline;
+
+import com.lindar.postcodes.io.client.util.CsvLineParser;
+import com.lindar.postcodes.io.client.vo.PostcodeCodes;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Reads postcodes from a CSV file with a header line. Columns are matched by
+ * name, so both a postcodes.io export - columns named like the JSON fields,
+ * for example "admin_district" or "codes.admin_district" - and the ONS
+ * Postcode Directory - columns like "pcds", "oseast1m" or "oslaua" - are
+ * understood. Unknown columns are ignored and terminated postcodes (ONS
+ * Postcode Directory rows with a "doterm" date) are skipped.
+ * <p>
+ * The ONS Postcode Directory only holds area codes, where Postcodes.io
+ * returns names. Its district, county, ward, parish, ccg, nuts, constituency,
+ * lsoa and msoa codes go to the {@link PostcodeCodes} fields and leave the
+ * name fields null. Country, region and European electoral region codes are
+ * turned into the names Postcodes.io uses. The health authority and primary
+ * care trust have neither a name in the directory nor a codes field, so they
+ * stay null.
+ *
+ * @author iulian
+ */
+public final class PostcodeCsvReader {
+
+    private static final String TERMINATION_DATE = "doterm";
+    private static final String ONS_POSTCODE = "pcds";
+    private static final Map<String, BiConsumer<PostcodeVO, String>> COLUMNS = new HashMap<>();
+    private static final Map<String, BiConsumer<PostcodeVO, String>> ONS_COLUMNS = new HashMap<>();
+
+    /**
+     * Names of the ONS country, region and European electoral region codes,
+     * as Postcodes.io returns them
+     */
+    private static final Map<String, String> ONS_AREA_NAMES = new HashMap<>();
+
+    static {
+        COLUMNS.put("postcode", PostcodeVO::setPostcode);
+        COLUMNS.put("quality", PostcodeVO::setQuality);
+        COLUMNS.put("eastings", (postcode, value) -> postcode.setEastings(parseGridReference(value)));
+        COLUMNS.put("northings", (postcode, value) -> postcode.setNorthings(parseGridReference(value)));
+        COLUMNS.put("country", PostcodeVO::setCountry);
+        COLUMNS.put("nhs_ha", PostcodeVO::setNhsHa);
+        COLUMNS.put("longitude", (postcode, value) -> postcode.setLongitude(parseCoordinate(value, 180)));
+        COLUMNS.put("latitude", (postcode, value) -> postcode.setLatitude(parseCoordinate(value, 90)));
+        COLUMNS.put("parliamentary_constituency", PostcodeVO::setParliamentaryConstituency);
+        COLUMNS.put("european_electoral_region", PostcodeVO::setEuropeanElectoralRegion);
+        COLUMNS.put("primary_care_trust", PostcodeVO::setPrimaryCareTrust);
+        COLUMNS.put("region", PostcodeVO::setRegion);
+        COLUMNS.put("lsoa", PostcodeVO::setLsoa);
+        COLUMNS.put("msoa", PostcodeVO::setMsoa);
+        COLUMNS.put("incode", PostcodeVO::setIncode);
+        COLUMNS.put("outcode", PostcodeVO::setOutcode);
+        COLUMNS.put("admin_district", PostcodeVO::setAdminDistrict);
+        COLUMNS.put("parish", PostcodeVO::setParish);
+        COLUMNS.put("admin_county", PostcodeVO::setAdminCounty);
+        COLUMNS.put("admin_ward", PostcodeVO::setAdminWard);
+        COLUMNS.put("ccg", PostcodeVO::setCcg);
+        COLUMNS.put("nuts", PostcodeVO::setNuts);
+        COLUMNS.put("codes.admin_district", codes(PostcodeCodes::setAdminDistrict));
+        COLUMNS.put("codes.admin_county", codes(PostcodeCodes::setAdminCounty));
+        COLUMNS.put("codes.admin_ward", codes(PostcodeCodes::setAdminWard));
+        COLUMNS.put("codes.parish", codes(PostcodeCodes::setParish));
+        COLUMNS.put("codes.ccg", codes(PostcodeCodes::setCcg));
+        COLUMNS.put("codes.nuts", codes(PostcodeCodes::setNuts));
+        COLUMNS.put("codes.parliamentary_constituency", codes(PostcodeCodes::setParliamentaryConstituency));
+        COLUMNS.put("codes.lsoa", codes(PostcodeCodes::setLsoa));
+        COLUMNS.put("codes.msoa", codes(PostcodeCodes::setMsoa));
+
+        // ONS Postcode Directory. Its parish, ccg and nuts columns share their
+        // names with the postcodes.io ones above but hold codes
+        ONS_COLUMNS.put(ONS_POSTCODE, PostcodeVO::setPostcode);
+        ONS_COLUMNS.put("osgrdind", PostcodeVO::setQuality);
+        ONS_COLUMNS.put("oseast1m", COLUMNS.get("eastings"));
+        ONS_COLUMNS.put("osnrth1m", COLUMNS.get("northings"));
+        ONS_COLUMNS.put("long", COLUMNS.get("longitude"));
+        ONS_COLUMNS.put("lat", COLUMNS.get("latitude"));
+        ONS_COLUMNS.put("ctry", areaName(PostcodeVO::setCountry));
+        ONS_COLUMNS.put("rgn", areaName(PostcodeVO::setRegion));
+        ONS_COLUMNS.put("eer", areaName(PostcodeVO::setEuropeanElectoralRegion));
+        ONS_COLUMNS.put("oslaua", codes(PostcodeCodes::setAdminDistrict));
+        ONS_COLUMNS.put("oscty", codes(PostcodeCodes::setAdminCounty));
+        ONS_COLUMNS.put("osward", codes(PostcodeCodes::setAdminWard));
+        ONS_COLUMNS.put("parish", codes(PostcodeCodes::setParish));
+        ONS_COLUMNS.put("ccg", codes(PostcodeCodes::setCcg));
+        ONS_COLUMNS.put("nuts", codes(PostcodeCodes::setNuts));
+        ONS_COLUMNS.put("pcon", codes(PostcodeCodes::setParliamentaryConstituency));
+        ONS_COLUMNS.put("lsoa11", codes(PostcodeCodes::setLsoa));
+        ONS_COLUMNS.put("msoa11", codes(PostcodeCodes::setMsoa));
+
+        ONS_AREA_NAMES.put("E92000001", "England");
+        ONS_AREA_NAMES.put("W92000004", "Wales");
+        ONS_AREA_NAMES.put("S92000003", "Scotland");
+        ONS_AREA_NAMES.put("N92000002", "Northern Ireland");
+        ONS_AREA_NAMES.put("L93000001", "Channel Islands");
+        ONS_AREA_NAMES.put("M83000003", "Isle of Man");
+        String[] englishRegions = {"North East", "North West", "Yorkshire and The Humber", "East Midlands",
+            "West Midlands", "East of England", "London", "South East", "South West"};
+        for (int i = 0; i < englishRegions.length; i++) {
+            ONS_AREA_NAMES.put("E1200000" + (i + 1), englishRegions[i]);
+            ONS_AREA_NAMES.put("E1500000" + (i + 1), englishRegions[i]);
+        }
+        ONS_AREA_NAMES.put("W08000001", "Wales");
+        ONS_AREA_NAMES.put("S15000001", "Scotland");
+        ONS_AREA_NAMES.put("N07000001", "Northern Ireland");
+    }
+
+    private PostcodeCsvReader() {
+    }
+
+    private static BiConsumer<PostcodeVO, String> codes(BiConsumer<PostcodeCodes, String> setter) {
+        return (postcode, value) -> {
+            if (postcode.getCodes() == null) {
+                postcode.setCodes(new PostcodeCodes());
+            }
+            setter.accept(postcode.getCodes(), value);
+        };
+    }
+
+    /**
+     * Codes with no known name, the pseudo codes of the Channel Islands and
+     * the Isle of Man for example, leave the field null
+     */
+    private static BiConsumer<PostcodeVO, String> areaName(BiConsumer<PostcodeVO, String> setter) {
+        return (postcode, value) -> setter.accept(postcode, ONS_AREA_NAMES.get(value));
+    }
+
+    /**
+     * Reads every live postcode of the CSV, handing them to the consumer one
+     * by one so the whole file is never held in memory as text
+     *
+     * @param csv the CSV content, it is not closed by this method
+     * @param consumer receives the postcodes in file order
+     * @return the number of postcodes read
+     * @throws IOException when the CSV can't be read
+     * @throws IllegalArgumentException when the CSV has no postcode column
+     */
+    public static int read(Reader csv, Consumer<PostcodeVO> consumer) throws IOException {
+        BufferedReader reader = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+        List<String> fields = new ArrayList<>();
+        CsvLineParser.parse(header.startsWith("\uFEFF") ? header.substring(1) : header, fields);
+        List<String> names = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            names.add(field.trim().toLowerCase(Locale.ROOT));
+        }
+        Map<String, BiConsumer<PostcodeVO, String>> columns = names.contains(ONS_POSTCODE) ? ONS_COLUMNS : COLUMNS;
+        List<BiConsumer<PostcodeVO, String>> setters = new ArrayList<>(names.size());
+        int terminationColumn = names.indexOf(TERMINATION_DATE);
+        boolean hasPostcode = false;
+        for (String name : names) {
+            hasPostcode |= "postcode".equals(name) || ONS_POSTCODE.equals(name);
+            setters.add(columns.get(name));
+        }
+        if (!hasPostcode) {
+            throw new IllegalArgumentException("The CSV has no postcode column, expected a 'postcode' or 'pcds' header");
+        }
+
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            CsvLineParser.parse(line, fields);
+            if (terminationColumn >= 0 && terminationColumn < fields.size() && !fields.get(terminationColumn).trim().isEmpty()) {
+                continue;
+            }
+            PostcodeVO postcode = new PostcodeVO();
+            for (int i = 0; i < fields.size() && i < setters.size(); i++) {
+                String value = fields.get(i).trim();
+                if (setters.get(i) != null && !value.isEmpty()) {
+                    setters.get(i).accept(postcode, value);
+                }
+            }
+            if (postcode.getPostcode() == null) {
+                continue;
+            }
+            fillOutcodeAndIncode(postcode);
+            consumer.accept(postcode);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The ONS Postcode Directory marks postcodes without a location with a
+     * latitude of 99.999999, which is out of range like any other bad value
+     */
+    private static double parseCoordinate(String value, double maxAbsolute) {
+        try {
+            double coordinate = Double.parseDouble(value);
+            return Math.abs(coordinate) <= maxAbsolute ? coordinate : Double.NaN;
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private static int parseGridReference(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return PostcodeVO.NO_GRID_REFERENCE;
+        }
+    }
+
+    /**
+     * The inward code is always the last three characters of a postcode
+     */
+    private static void fillOutcodeAndIncode(PostcodeVO postcode) {
+        String compact = OfflinePostcodeIndex.key(postcode.getPostcode());
+        if (compact.length() < 5) {
+            return;
+        }
+        if (postcode.getOutcode() == null) {
+            postcode.setOutcode(compact.substring(0, compact.length() - 3));
+        }
+        if (postcode.getIncode() == null) {
+            postcode.setIncode(compact.substring(compact.length() - 3));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.lindar.postcodes.io.client.offline;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of postcode centroids: a fixed grid of 0.01 degree cells
+ * whose points are stored contiguously, ordered by cell. A cell is found with
+ * a binary search over the sorted cell keys and, as the cells of a grid row
+ * are adjacent in that order, a whole row of a query rectangle is scanned
+ * after a single search. Coordinates are copied in grid order next to the
+ * row of each point in the {@link PostcodeColumns}, so a query reads
+ * contiguous primitive arrays and only returns row numbers.
+ *
+ * @author iulian
+ */
+final class PostcodeGrid {
+
+    private static final double CELL_DEGREES = 0.01;
+    private static final int LATITUDE_CELL_OFFSET = 9000;
+    private static final int LONGITUDE_CELL_OFFSET = 18000;
+    private static final int LONGITUDE_CELLS = 2 * LONGITUDE_CELL_OFFSET + 1;
+    private static final double EARTH_RADIUS_METRES = 6371008.8;
+    private static final double METRES_PER_DEGREE = EARTH_RADIUS_METRES * Math.PI / 180;
+
+    private final int[] cellKeys;
+    private final int[] cellStarts;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] rows;
+
+    /**
+     * @param columns the postcodes to index, those without valid coordinates are left out
+     */
+    PostcodeGrid(PostcodeColumns columns) {
+        long[] order = new long[columns.size()];
+        int size = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            double latitude = columns.latitude(row);
+            double longitude = columns.longitude(row);
+            if (Double.isNaN(latitude) || Double.isNaN(longitude) || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                continue;
+            }
+            order[size++] = ((long) cellKey(latitudeCell(latitude), longitudeCell(longitude)) << 32) | row;
+        }
+        order = Arrays.copyOf(order, size);
+        Arrays.sort(order);
+
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.rows = new int[size];
+        int[] keys = new int[size];
+        int[] starts = new int[size + 1];
+        int cells = 0;
+        for (int p = 0; p < size; p++) {
+            int key = (int) (order[p] >>> 32);
+            int row = (int) order[p];
+            latitudes[p] = columns.latitude(row);
+            longitudes[p] = columns.longitude(row);
+            rows[p] = row;
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells++] = p;
+            }
+        }
+        starts[cells] = size;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStarts = Arrays.copyOf(starts, cells + 1);
+    }
+
+    /**
+     * Finds the postcodes nearest to a point within a radius
+     *
+     * @param longitude
+     * @param latitude
+     * @param limit maximum number of postcodes returned
+     * @param radiusMetres search radius
+     * @return the rows of the postcodes ordered by distance, empty when none is within the radius
+     */
+    int[] nearest(double longitude, double latitude, int limit, double radiusMetres) {
+        Nearest nearest = new Nearest(limit);
+        collect(longitude, latitude, radiusMetres, nearest);
+        return nearest.sorted(rows);
+    }
+
+    /**
+     * Like {@link #nearest} but starts with a small radius and widens it
+     * until enough postcodes are found, so a wide radius doesn't mean
+     * measuring the distance to every postcode of a city
+     */
+    int[] nearestExpanding(double longitude, double latitude, int limit, double maxRadiusMetres) {
+        double radius = Math.min(100, maxRadiusMetres);
+        while (true) {
+            Nearest nearest = new Nearest(limit);
+            collect(longitude, latitude, radius, nearest);
+            if (nearest.size == limit || radius >= maxRadiusMetres) {
+                return nearest.sorted(rows);
+            }
+            radius = Math.min(radius * 4, maxRadiusMetres);
+        }
+    }
+
+    private void collect(double longitude, double latitude, double radiusMetres, Nearest nearest) {
+        double latitudeSpan = radiusMetres / METRES_PER_DEGREE;
+        double longitudeSpan = latitudeSpan / Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        int fromLatitudeCell = latitudeCell(Math.max(latitude - latitudeSpan, -90));
+        int toLatitudeCell = latitudeCell(Math.min(latitude + latitudeSpan, 90));
+        int fromLongitudeCell = longitudeCell(Math.max(longitude - longitudeSpan, -180));
+        int toLongitudeCell = longitudeCell(Math.min(longitude + longitudeSpan, 180));
+        double latitudeRadians = Math.toRadians(latitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+
+        for (int latitudeCell = fromLatitudeCell; latitudeCell <= toLatitudeCell; latitudeCell++) {
+            int rowEnd = cellKey(latitudeCell, toLongitudeCell);
+            int cell = Arrays.binarySearch(cellKeys, cellKey(latitudeCell, fromLongitudeCell));
+            for (cell = cell >= 0 ? cell : -cell - 1; cell < cellKeys.length && cellKeys[cell] <= rowEnd; cell++) {
+                for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+                    double distance = distance(latitudeRadians, cosLatitude, longitude, latitudes[p], longitudes[p]);
+                    if (distance <= radiusMetres) {
+                        nearest.offer(p, distance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Haversine distance in metres
+     */
+    private static double distance(double latitudeRadians, double cosLatitude, double longitude, double otherLatitude, double otherLongitude) {
+        double otherLatitudeRadians = Math.toRadians(otherLatitude);
+        double sinLatitude = Math.sin((otherLatitudeRadians - latitudeRadians) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(otherLongitude - longitude) / 2);
+        double a = sinLatitude * sinLatitude + cosLatitude * Math.cos(otherLatitudeRadians) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int latitudeCell(double latitude) {
+        return (int) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    private static int longitudeCell(double longitude) {
+        return (int) Math.floor(longitude / CELL_DEGREES);
+    }
+
+    private static int cellKey(int latitudeCell, int longitudeCell) {
+        return (latitudeCell + LATITUDE_CELL_OFFSET) * LONGITUDE_CELLS + longitudeCell + LONGITUDE_CELL_OFFSET;
+    }
+
+    /**
+     * Bounded max-heap keeping the closest points offered so far
+     */
+    private static final class Nearest {
+
+        private final int[] points;
+        private final double[] distances;
+        private int size;
+
+        private Nearest(int limit) {
+            this.points = new int[limit];
+            this.distances = new double[limit];
+        }
+
+        private void offer(int point, double distance) {
+            if (size < points.length) {
+                int child = size++;
+                while (child > 0) {
+                    int parent = (child - 1) / 2;
+                    if (distances[parent] >= distance) {
+                        break;
+                    }
+                    points[child] = points[parent];
+                    distances[child] = distances[parent];
+                    child = parent;
+                }
+                points[child] = point;
+                distances[child] = distance;
+            } else if (size > 0 && distance < distances[0]) {
+                int parent = 0;
+                while (true) {
+                    int child = 2 * parent + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    points[parent] = points[child];
+                    distances[parent] = distances[child];
+                    parent = child;
+                }
+                points[parent] = point;
+                distances[parent] = distance;
+            }
+        }
+
+        private int[] sorted(int[] rows) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> distances[a] != distances[b]
+                    ? Double.compare(distances[a], distances[b])
+                    : Integer.compare(points[a], points[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = rows[points[order[i]]];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transport decorator limiting the number of requests in flight with an
+ * additive increase, multiplicative decrease (AIMD) limit, the way TCP
+ * congestion control does. Every request that completes in time grows the
+ * limit by 1/limit, about one more request per round trip. A request answered
+ * with 429 or a 5xx status or failing with an IOException shrinks it by 10%,
+ * and so does latency growing to twice its usual value. Requests over the
+ * limit wait for a slot, so the throughput settles at what Postcodes.io can
+ * sustain.
+ * <p>
+ * Latency is tracked as two moving averages of successful requests: a fast
+ * one of the recent requests and a slow one of the usual latency, so a single
+ * outlier doesn't count as growing latency. Only requests sent after the last
+ * decrease can shrink the limit again, so a burst of failures of the same
+ * overloaded moment counts once.
+ *
+ * @author iulian
+ */
+public class AdaptiveConcurrencyTransport implements PostcodesTransport {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 10;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 50;
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2;
+    private static final double RECENT_LATENCY_SMOOTHING = 0.2;
+    private static final double USUAL_LATENCY_SMOOTHING = 0.01;
+
+    private final PostcodesTransport delegate;
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private double recentLatencyNanos = Double.NaN;
+    private double usualLatencyNanos = Double.NaN;
+    private long decreasedAt = Long.MIN_VALUE;
+
+    /**
+     * Starts at {@value #DEFAULT_INITIAL_LIMIT} requests in flight and stays
+     * between {@value #DEFAULT_MIN_LIMIT} and {@value #DEFAULT_MAX_LIMIT}
+     *
+     * @param delegate the transport the requests are sent with
+     */
+    public AdaptiveConcurrencyTransport(PostcodesTransport delegate) {
+        this(delegate, DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param initialLimit
+     * @param minLimit
+     * @param maxLimit keep it at or below the connection pool size of the delegate
+     * @throws IllegalArgumentException when the limits are inconsistent
+     */
+    public AdaptiveConcurrencyTransport(PostcodesTransport delegate, int initialLimit, int minLimit, int maxLimit) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("You provided a null transport");
+        }
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("The limits need to satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.delegate = delegate;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        int[] status = new int[1];
+        long start = acquire();
+        try {
+            return delegate.get(url, recordingStatus(handler, status));
+        } finally {
+            release(start, status[0]);
+        }
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        int[] status = new int[1];
+        long start = acquire();
+        try {
+            return delegate.post(url, body, recordingStatus(handler, status));
+        } finally {
+            release(start, status[0]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * @return the current number of requests allowed in flight
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <T> BodyHandler<T> recordingStatus(BodyHandler<T> handler, int[] status) {
+        return (statusCode, body) -> {
+            status[0] = statusCode;
+            return handler.handle(statusCode, body);
+        };
+    }
+
+    /**
+     * Waits for a slot
+     *
+     * @return the time the request was sent at
+     */
+    private long acquire() throws IOException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+            return System.nanoTime();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a concurrency slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot and adjusts the limit
+     *
+     * @param start the time the request was sent at
+     * @param status the response status, 0 when the request failed before a response arrived
+     */
+    private void release(long start, int status) {
+        long now = System.nanoTime();
+        long latency = now - start;
+        lock.lock();
+        try {
+            boolean overloaded = status == 0 || status == 429 || status >= 500;
+            if (!overloaded) {
+                recentLatencyNanos = average(recentLatencyNanos, latency, RECENT_LATENCY_SMOOTHING);
+                usualLatencyNanos = average(usualLatencyNanos, latency, USUAL_LATENCY_SMOOTHING);
+            }
+            boolean slow = !overloaded && recentLatencyNanos > LATENCY_TOLERANCE * usualLatencyNanos;
+            if (overloaded || slow) {
+                if (start > decreasedAt) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    decreasedAt = now;
+                }
+            } else if (inFlight * 2 >= limit) {
+                // only grow when the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static double average(double average, long sample, double smoothing) {
+        return Double.isNaN(average) ? sample : average + smoothing * (sample - average);
+    }
+}
@@ -0,0 +1,238 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Transport decorator failing fast while Postcodes.io is down or too slow to
+ * be worth waiting for. It keeps the outcome of the last requests: a request
+ * fails when it throws an IOException, is answered with 429 or a 5xx status,
+ * or takes longer than the slow call threshold. Once enough of them failed
+ * the circuit opens and every request throws a {@link CircuitOpenException}
+ * straight away, without reaching the delegate. After the open period a
+ * single trial request is let through: if it succeeds the circuit closes,
+ * otherwise it opens again.
+ *
+ * @author iulian
+ */
+public class CircuitBreakerTransport implements PostcodesTransport {
+
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final long DEFAULT_SLOW_CALL_MILLIS = 2000;
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+    private static final int WINDOW_SIZE = 20;
+    private static final int MINIMUM_CALLS = 10;
+
+    /**
+     * States of the circuit
+     */
+    public enum State {
+        /**
+         * Requests go through
+         */
+        CLOSED,
+        /**
+         * Requests fail fast
+         */
+        OPEN,
+        /**
+         * A single trial request goes through, the others fail fast
+         */
+        HALF_OPEN
+    }
+
+    private final PostcodesTransport delegate;
+    private final int failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private final boolean[] window = new boolean[WINDOW_SIZE];
+    private int windowCount;
+    private int windowPosition;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trialStartedAt;
+
+    /**
+     * Opens when {@value #DEFAULT_FAILURE_RATE_THRESHOLD}% of the recent
+     * requests failed or took longer than {@value #DEFAULT_SLOW_CALL_MILLIS}ms,
+     * and stays open for {@value #DEFAULT_OPEN_MILLIS}ms
+     *
+     * @param delegate the transport the requests are sent with
+     */
+    public CircuitBreakerTransport(PostcodesTransport delegate) {
+        this(delegate, DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_SLOW_CALL_MILLIS, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param failureRateThreshold percentage of failed recent requests that opens the circuit
+     * @param slowCallMillis requests taking longer count as failed
+     * @param openMillis how long the circuit stays open before a trial request
+     * @throws IllegalArgumentException when an argument is null or out of range
+     */
+    public CircuitBreakerTransport(PostcodesTransport delegate, int failureRateThreshold, long slowCallMillis, long openMillis) {
+        this(delegate, failureRateThreshold, slowCallMillis, openMillis, System::nanoTime);
+    }
+
+    CircuitBreakerTransport(PostcodesTransport delegate, int failureRateThreshold, long slowCallMillis, long openMillis, LongSupplier nanoTime) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("You provided a null transport");
+        }
+        if (failureRateThreshold < 1 || failureRateThreshold > 100 || slowCallMillis < 1 || openMillis < 1) {
+            throw new IllegalArgumentException("The failure rate threshold needs to be between 1 and 100 and the durations positive");
+        }
+        this.delegate = delegate;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        int[] status = new int[1];
+        long start = acquire();
+        try {
+            return delegate.get(url, recordingStatus(handler, status));
+        } finally {
+            record(start, status[0]);
+        }
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        int[] status = new int[1];
+        long start = acquire();
+        try {
+            return delegate.post(url, body, recordingStatus(handler, status));
+        } finally {
+            record(start, status[0]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * @return the state of the circuit, an open circuit whose open period is
+     * over is reported as half open
+     */
+    public synchronized State getState() {
+        return state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos ? State.HALF_OPEN : state;
+    }
+
+    /**
+     * Registers a listener called on every state change, on the thread of the
+     * request that caused it. Listeners must not block
+     *
+     * @param listener
+     */
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    private static <T> BodyHandler<T> recordingStatus(BodyHandler<T> handler, int[] status) {
+        return (statusCode, body) -> {
+            status[0] = statusCode;
+            return handler.handle(statusCode, body);
+        };
+    }
+
+    /**
+     * @return the time the request was let through at
+     * @throws CircuitOpenException when the request isn't let through
+     */
+    private long acquire() throws CircuitOpenException {
+        State changed = null;
+        long now;
+        synchronized (this) {
+            now = nanoTime.getAsLong();
+            if (state == State.OPEN && now - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                changed = state;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+                throw new CircuitOpenException();
+            }
+            if (state == State.HALF_OPEN) {
+                trialInFlight = true;
+                trialStartedAt = now;
+            }
+        }
+        notifyListeners(changed);
+        return now;
+    }
+
+    /**
+     * @param status the response status, 0 when the request failed before a response arrived
+     */
+    private void record(long start, int status) {
+        long now = nanoTime.getAsLong();
+        boolean failed = status == 0 || status == 429 || status >= 500 || now - start > slowCallNanos;
+        State changed = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN && trialInFlight && start == trialStartedAt) {
+                // requests sent before the circuit opened don't decide the trial
+                trialInFlight = false;
+                state = failed ? State.OPEN : State.CLOSED;
+                openedAt = now;
+                resetWindow();
+                changed = state;
+            } else if (state == State.CLOSED) {
+                if (windowCount == WINDOW_SIZE && window[windowPosition]) {
+                    windowFailures--;
+                }
+                window[windowPosition] = failed;
+                windowPosition = (windowPosition + 1) % WINDOW_SIZE;
+                windowCount = Math.min(windowCount + 1, WINDOW_SIZE);
+                windowFailures += failed ? 1 : 0;
+                if (windowCount >= MINIMUM_CALLS && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                    state = State.OPEN;
+                    openedAt = now;
+                    resetWindow();
+                    changed = state;
+                }
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    private void resetWindow() {
+        windowCount = 0;
+        windowPosition = 0;
+        windowFailures = 0;
+    }
+
+    private void notifyListeners(State changed) {
+        if (changed != null) {
+            for (Consumer<State> listener : listeners) {
+                listener.accept(changed);
+            }
+        }
+    }
+
+    /**
+     * Thrown instead of sending a request while the circuit is open
+     */
+    public static class CircuitOpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException() {
+            super("The circuit to Postcodes.io is open, the request wasn't sent");
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.DaemonThreadFactory;
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport decorator cutting tail latency with hedged requests: when a
+ * request hasn't been answered within the given percentile of recent
+ * latencies, the same request is sent once more and whichever answer arrives
+ * first is returned. The slower one is read and dropped when it arrives. Every
+ * hedge takes a token of the {@link RetryBudget}, and nothing is hedged until
+ * enough latencies have been seen to know what slow means.
+ * <p>
+ * Until the first hedging delay is known every request is sent on the calling
+ * thread. After that, the calling thread has to be free to take whichever
+ * answer comes first, so both the request and its hedge are sent from a
+ * bounded pool of daemon threads owned by the transport. When that pool is
+ * busy the request is sent on the calling thread and isn't hedged. The
+ * handler can therefore be called from another thread and, for a hedged
+ * request, twice at the same time. The handlers of the client are stateless.
+ *
+ * @author iulian
+ */
+public class HedgingTransport implements PostcodesTransport {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    /**
+     * Threads sending requests and hedges, as many as the default connection
+     * pool has connections
+     */
+    public static final int DEFAULT_MAX_THREADS = PooledHttpTransport.DEFAULT_MAX_CONNECTIONS;
+
+    private static final int LATENCY_SAMPLES = 256;
+    private static final int MIN_LATENCY_SAMPLES = 32;
+    private static final int DELAY_REFRESH_INTERVAL = 32;
+
+    private final PostcodesTransport delegate;
+    private final double percentile;
+    private final RetryBudget budget;
+    private final ThreadPoolExecutor executor;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount;
+    private volatile long hedgeDelayNanos = Long.MAX_VALUE;
+
+    /**
+     * Hedges requests slower than the {@value #DEFAULT_PERCENTILE}th percentile
+     * with the default budget
+     *
+     * @param delegate the transport the requests are sent with
+     */
+    public HedgingTransport(PostcodesTransport delegate) {
+        this(delegate, DEFAULT_PERCENTILE, new RetryBudget());
+    }
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param percentile latency percentile after which a request is hedged, for example 95
+     * @param budget bounds the hedges across all requests
+     * @throws IllegalArgumentException when an argument is null or the percentile is out of range
+     */
+    public HedgingTransport(PostcodesTransport delegate, double percentile, RetryBudget budget) {
+        this(delegate, percentile, budget, DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param percentile latency percentile after which a request is hedged, for example 95
+     * @param budget bounds the hedges across all requests
+     * @param maxThreads maximum number of requests and hedges sent from the pool at once
+     * @throws IllegalArgumentException when an argument is null or out of range
+     */
+    public HedgingTransport(PostcodesTransport delegate, double percentile, RetryBudget budget, int maxThreads) {
+        if (delegate == null || budget == null) {
+            throw new IllegalArgumentException("You provided a null transport or budget");
+        }
+        if (!(percentile > 0 && percentile < 100)) {
+            throw new IllegalArgumentException("The percentile needs to be between 0 and 100");
+        }
+        if (maxThreads < 2) {
+            throw new IllegalArgumentException("A request and its hedge need at least 2 threads");
+        }
+        this.delegate = delegate;
+        this.percentile = percentile;
+        this.budget = budget;
+        this.executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new DaemonThreadFactory("postcodes-io-hedge"));
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        return send(() -> delegate.get(url, handler));
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        return send(() -> delegate.post(url, body, handler));
+    }
+
+    /**
+     * Stops the hedging threads and closes the delegate
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        delegate.close();
+    }
+
+    /**
+     * @return the current hedging delay in milliseconds, -1 while there aren't
+     * enough latency samples yet
+     */
+    public long getHedgeDelayMillis() {
+        long delay = hedgeDelayNanos;
+        return delay == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+    }
+
+    private <T> T send(Request<T> request) throws IOException {
+        budget.deposit();
+        long delay = hedgeDelayNanos;
+        BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+        if (delay == Long.MAX_VALUE || !trySubmit(request, outcomes)) {
+            long start = System.nanoTime();
+            T result = request.send();
+            recordLatency(System.nanoTime() - start);
+            return result;
+        }
+        try {
+            Outcome<T> outcome = outcomes.poll(delay, TimeUnit.NANOSECONDS);
+            int pending = 1;
+            if (outcome == null) {
+                if (budget.tryWithdraw() && trySubmit(request, outcomes)) {
+                    pending++;
+                }
+                outcome = outcomes.take();
+            }
+            // a failure only counts once the other request failed too
+            while (outcome.failure != null && --pending > 0) {
+                outcome = outcomes.take();
+            }
+            if (outcome.failure != null) {
+                throw rethrown(outcome.failure);
+            }
+            return outcome.result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        }
+    }
+
+    /**
+     * @return false when every thread of the pool is busy
+     */
+    private <T> boolean trySubmit(Request<T> request, BlockingQueue<Outcome<T>> outcomes) {
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    T result = request.send();
+                    recordLatency(System.nanoTime() - start);
+                    outcomes.add(new Outcome<>(result, null));
+                } catch (Throwable ex) {
+                    // the caller waits for an outcome with no timeout, whatever the request throws
+                    outcomes.add(new Outcome<>(null, ex));
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Throws what a pooled request threw on the calling thread, as if it had
+     * been sent there
+     */
+    private static IOException rethrown(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return failure instanceof IOException ? (IOException) failure : new IOException(failure);
+    }
+
+    /**
+     * Keeps the latest latencies in a ring and recomputes the hedging delay
+     * every few samples rather than on every request
+     */
+    private synchronized void recordLatency(long latencyNanos) {
+        latencies[(int) (latencyCount % LATENCY_SAMPLES)] = latencyNanos;
+        latencyCount++;
+        if (latencyCount >= MIN_LATENCY_SAMPLES && latencyCount % DELAY_REFRESH_INTERVAL == 0) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_SAMPLES));
+            Arrays.sort(sorted);
+            hedgeDelayNanos = sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1];
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+
+        T send() throws IOException;
+    }
+
+    private static final class Outcome<T> {
+
+        private final T result;
+        private final Throwable failure;
+
+        private Outcome(T result, Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+}
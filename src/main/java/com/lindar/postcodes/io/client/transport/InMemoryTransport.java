@@ -0,0 +1,94 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Data;
+
+/**
+ * Transport that never touches the network: every request is answered by a
+ * {@link Responder}. Meant for tests and benchmarks of the client itself.
+ *
+ * @author iulian
+ */
+public class InMemoryTransport implements PostcodesTransport {
+
+    private final Responder responder;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * @param responder answers every request
+     */
+    public InMemoryTransport(Responder responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Creates a transport answering every request with the same response
+     *
+     * @param statusCode
+     * @param body JSON body, null for no body
+     * @return
+     */
+    public static InMemoryTransport fixed(int statusCode, String body) {
+        StubResponse response = new StubResponse(statusCode, body);
+        return new InMemoryTransport((method, url, requestBody) -> response);
+    }
+
+    /**
+     * Number of requests answered so far
+     * @return
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        return respond("GET", url, null, handler);
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        body.writeTo(requestBody);
+        return respond("POST", url, new String(requestBody.toByteArray(), StandardCharsets.UTF_8), handler);
+    }
+
+    private <T> T respond(String method, String url, String requestBody, BodyHandler<T> handler) throws IOException {
+        requestCount.incrementAndGet();
+        StubResponse response = responder.respond(method, url, requestBody);
+        if (response.getBody() == null) {
+            return handler.handle(response.getStatusCode(), null);
+        }
+        return handler.handle(response.getStatusCode(), new ByteArrayInputStream(response.getBody().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Answers the requests of an {@link InMemoryTransport}
+     */
+    @FunctionalInterface
+    public interface Responder {
+
+        /**
+         * @param method GET or POST
+         * @param url the full request URL
+         * @param body the JSON body of POST requests, null for GET requests
+         * @return the response to send back
+         * @throws IOException to simulate a network failure
+         */
+        StubResponse respond(String method, String url, String body) throws IOException;
+    }
+
+    /**
+     * Canned response of an {@link InMemoryTransport}
+     */
+    @Data
+    public static class StubResponse {
+        private final int statusCode;
+        private final String body;
+    }
+}
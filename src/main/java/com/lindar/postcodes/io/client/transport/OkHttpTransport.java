@@ -0,0 +1,98 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * HTTP/2 capable transport built on OkHttp. Over HTTPS it negotiates HTTP/2
+ * through ALPN and multiplexes every request over a single connection per
+ * host. For a self hosted Postcodes.io behind a plain HTTP/2 endpoint, use
+ * {@link #OkHttpTransport(boolean)} with prior knowledge enabled.
+ * <p>
+ * OkHttp is an optional dependency, add com.squareup.okhttp3:okhttp to the
+ * classpath to use this transport.
+ *
+ * @author iulian
+ */
+public class OkHttpTransport implements PostcodesTransport {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final OkHttpClient httpClient;
+
+    /**
+     * Creates a transport negotiating HTTP/2 over TLS, falling back to HTTP/1.1
+     */
+    public OkHttpTransport() {
+        this(false);
+    }
+
+    /**
+     * @param http2PriorKnowledge when true, plain HTTP connections speak HTTP/2
+     * straight away without any upgrade - only use it when the server is known
+     * to support it
+     */
+    public OkHttpTransport(boolean http2PriorKnowledge) {
+        this(new OkHttpClient.Builder()
+                .protocols(http2PriorKnowledge ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE) : Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(PooledHttpTransport.DEFAULT_MAX_CONNECTIONS, 60, TimeUnit.SECONDS))
+                .connectTimeout(PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .readTimeout(PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    /**
+     * Uses a fully customised OkHttp client
+     *
+     * @param httpClient
+     */
+    public OkHttpTransport(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        return execute(new Request.Builder().url(url).get().build(), handler);
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        RequestBody requestBody = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                body.writeTo(sink.outputStream());
+            }
+        };
+        return execute(new Request.Builder().url(url).post(requestBody).build(), handler);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    private <T> T execute(Request request, BodyHandler<T> handler) throws IOException {
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            return handler.handle(response.code(), body != null ? body.byteStream() : null);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Default transport: Apache HttpClient on top of a pool of keep-alive
+ * connections, so consecutive requests skip the TCP and TLS handshakes.
+ *
+ * @author iulian
+ */
+public class PooledHttpTransport implements PostcodesTransport {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    private static final long CONNECTION_TIME_TO_LIVE_SECONDS = 60;
+    private static final long MAX_IDLE_TIME_SECONDS = 30;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Creates a transport with up to {@value #DEFAULT_MAX_CONNECTIONS} pooled
+     * connections, a {@value #DEFAULT_CONNECT_TIMEOUT_MILLIS}ms connect timeout
+     * and a {@value #DEFAULT_READ_TIMEOUT_MILLIS}ms read timeout
+     */
+    public PooledHttpTransport() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param maxConnections maximum number of pooled connections - all of them
+     * can go to the same host as a client only talks to one Postcodes.io instance
+     * @param connectTimeoutMillis timeout for establishing a connection and for
+     * leasing one from the pool
+     * @param readTimeoutMillis maximum time of inactivity while reading a response
+     */
+    public PooledHttpTransport(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(CONNECTION_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(MAX_IDLE_TIME_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Uses a fully customised Apache HttpClient
+     *
+     * @param httpClient
+     */
+    public PooledHttpTransport(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        return execute(new HttpGet(url), handler);
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new JsonRequestEntity(body));
+        return execute(post, handler);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private <T> T execute(HttpUriRequest request, BodyHandler<T> handler) throws IOException {
+        return httpClient.execute(request, httpResponse -> {
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity entity = httpResponse.getEntity();
+            if (entity == null) {
+                return handler.handle(statusCode, null);
+            }
+            try (InputStream body = entity.getContent()) {
+                return handler.handle(statusCode, body);
+            }
+        });
+    }
+
+    /**
+     * Streams a JSON body into the outgoing request with chunked transfer encoding
+     */
+    private static final class JsonRequestEntity extends AbstractHttpEntity {
+
+        private final JsonRequestBody body;
+
+        private JsonRequestEntity(JsonRequestBody body) {
+            this.body = body;
+            setContentType(ContentType.APPLICATION_JSON.toString());
+            setChunked(true);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            body.writeTo(content);
+            return new ByteArrayInputStream(content.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
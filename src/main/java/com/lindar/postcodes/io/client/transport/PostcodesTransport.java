@@ -0,0 +1,66 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sends the HTTP requests of a {@link com.lindar.postcodes.io.client.PostcodesClient}.
+ * Implementations own their connections, so they are expected to be created
+ * once, shared by every request and closed when the client is no longer needed.
+ * Implementations need to be thread safe.
+ *
+ * @author iulian
+ */
+public interface PostcodesTransport extends Closeable {
+
+    /**
+     * Sends a GET request and hands the response to the handler while the
+     * body is still streaming from the connection
+     *
+     * @param <T> result type of the handler
+     * @param url the full request URL
+     * @param handler reads the response
+     * @return whatever the handler returned
+     * @throws IOException when the request can't be sent or the response can't be read
+     */
+    <T> T get(String url, BodyHandler<T> handler) throws IOException;
+
+    /**
+     * Sends a POST request with a JSON body and hands the response to the
+     * handler while the body is still streaming from the connection
+     *
+     * @param <T> result type of the handler
+     * @param url the full request URL
+     * @param body the JSON body, written straight into the request
+     * @param handler reads the response
+     * @return whatever the handler returned
+     * @throws IOException when the request can't be sent or the response can't be read
+     */
+    <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException;
+
+    /**
+     * Releases the connections held by the transport
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Reads a response. The body is only valid for the duration of the call
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    interface BodyHandler<T> {
+
+        /**
+         * @param statusCode the HTTP status code
+         * @param body the response body, null when the response has none
+         * @return
+         * @throws IOException
+         */
+        T handle(int statusCode, InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,96 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Transport decorator capping the request rate with a token bucket: the
+ * bucket refills at a steady rate up to its burst size and every request
+ * takes one token. A request finding the bucket empty reserves the next token
+ * and sleeps until it is due, so waiting requests are spread evenly instead of
+ * all being released at once.
+ *
+ * @author iulian
+ */
+public class RateLimitedTransport implements PostcodesTransport {
+
+    private final PostcodesTransport delegate;
+    private final double nanosPerPermit;
+    private final double burst;
+    private final LongSupplier nanoTime;
+
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param permitsPerSecond sustained number of requests per second
+     * @param burst number of requests that can be sent back to back after an
+     * idle period
+     * @throws IllegalArgumentException when the rate or the burst isn't positive
+     */
+    public RateLimitedTransport(PostcodesTransport delegate, double permitsPerSecond, int burst) {
+        this(delegate, permitsPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimitedTransport(PostcodesTransport delegate, double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("You provided a null transport");
+        }
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("The rate and the burst need to be positive");
+        }
+        this.delegate = delegate;
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.burst = burst;
+        this.nanoTime = nanoTime;
+        this.tokens = burst;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        acquire();
+        return delegate.get(url, handler);
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        acquire();
+        return delegate.post(url, body, handler);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void acquire() throws IOException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+            }
+        }
+    }
+
+    /**
+     * Takes a token, letting the bucket go negative when it is empty: a
+     * negative balance is the queue of requests already waiting
+     *
+     * @return how long the caller has to wait for its token, in nanoseconds
+     */
+    synchronized long reserve() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / nanosPerPermit);
+        refilledAt = now;
+        tokens--;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * nanosPerPermit);
+    }
+}
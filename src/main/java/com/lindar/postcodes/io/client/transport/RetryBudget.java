@@ -0,0 +1,65 @@
+package com.lindar.postcodes.io.client.transport;
+
+/**
+ * Bounds the extra requests retries and hedges add on top of the original
+ * ones, so they can't multiply the load on a struggling Postcodes.io. Every
+ * original request deposits a fraction of a token and every retry or hedge
+ * takes a whole one: with a ratio of 0.2, at most one extra request is sent
+ * for every five original ones once the initial reserve is spent. Shared
+ * between a {@link RetryingTransport} and a {@link HedgingTransport} it bounds
+ * both together. It is thread safe.
+ *
+ * @author iulian
+ */
+public class RetryBudget {
+
+    public static final double DEFAULT_RATIO = 0.2;
+    public static final int DEFAULT_RESERVE = 10;
+
+    private final double ratio;
+    private final double maxBalance;
+    private double balance;
+
+    /**
+     * A budget of one extra request for every five, with a reserve of
+     * {@value #DEFAULT_RESERVE} for when there has been little traffic yet
+     */
+    public RetryBudget() {
+        this(DEFAULT_RATIO, DEFAULT_RESERVE);
+    }
+
+    /**
+     * @param ratio extra requests allowed per original request, between 0 and 1
+     * @param reserve extra requests allowed on top of the ratio, also the
+     * initial balance
+     * @throws IllegalArgumentException when the ratio or reserve is out of range
+     */
+    public RetryBudget(double ratio, int reserve) {
+        if (!(ratio >= 0 && ratio <= 1) || reserve < 0) {
+            throw new IllegalArgumentException("The ratio needs to be between 0 and 1 and the reserve can't be negative");
+        }
+        this.ratio = ratio;
+        this.maxBalance = reserve + Math.max(1, ratio * 100);
+        this.balance = reserve;
+    }
+
+    /**
+     * Records an original request
+     */
+    public synchronized void deposit() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    /**
+     * Takes a token for a retry or a hedge
+     *
+     * @return false when the budget is spent and the extra request must not be sent
+     */
+    public synchronized boolean tryWithdraw() {
+        if (balance < 1) {
+            return false;
+        }
+        balance--;
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package com.lindar.postcodes.io.client.transport;
+
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport decorator retrying requests that failed with an IOException or
+ * were answered with 429, 502, 503 or 504. Every Postcodes.io request is
+ * idempotent - GET lookups and POST bulk lookups alike - so all of them can be
+ * retried. Retries wait an exponential backoff with full jitter, a random
+ * time between 0 and base * 2^attempt capped at the maximum backoff, so
+ * clients failing together don't retry together. Each retry takes a token of
+ * the {@link RetryBudget}; when it is spent the last response is returned as is.
+ * <p>
+ * The handler only reads the response that is returned, the responses that
+ * are retried are discarded unread.
+ *
+ * @author iulian
+ */
+public class RetryingTransport implements PostcodesTransport {
+
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final long DEFAULT_BASE_BACKOFF_MILLIS = 50;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+
+    private final PostcodesTransport delegate;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final RetryBudget budget;
+
+    /**
+     * Retries up to {@value #DEFAULT_MAX_RETRIES} times with the default
+     * backoff and budget
+     *
+     * @param delegate the transport the requests are sent with
+     */
+    public RetryingTransport(PostcodesTransport delegate) {
+        this(delegate, DEFAULT_MAX_RETRIES, DEFAULT_BASE_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, new RetryBudget());
+    }
+
+    /**
+     * @param delegate the transport the requests are sent with
+     * @param maxRetries maximum number of retries of a request
+     * @param baseBackoffMillis backoff cap of the first retry, doubled for every next one
+     * @param maxBackoffMillis maximum backoff cap
+     * @param budget bounds the retries across all requests
+     * @throws IllegalArgumentException when an argument is null or negative
+     */
+    public RetryingTransport(PostcodesTransport delegate, int maxRetries, long baseBackoffMillis, long maxBackoffMillis, RetryBudget budget) {
+        if (delegate == null || budget == null) {
+            throw new IllegalArgumentException("You provided a null transport or budget");
+        }
+        if (maxRetries < 0 || baseBackoffMillis < 0 || maxBackoffMillis < baseBackoffMillis) {
+            throw new IllegalArgumentException("The retries and backoffs can't be negative and the maximum backoff needs to be at least the base one");
+        }
+        this.delegate = delegate;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.budget = budget;
+    }
+
+    @Override
+    public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+        return send(retryable -> delegate.get(url, retryable), handler);
+    }
+
+    @Override
+    public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+        return send(retryable -> delegate.post(url, body, retryable), handler);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * @return whether a response with this status is worth retrying
+     */
+    static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    private <T> T send(Request<T> request, BodyHandler<T> handler) throws IOException {
+        budget.deposit();
+        for (int attempt = 0;; attempt++) {
+            boolean lastAttempt = attempt == maxRetries;
+            try {
+                return request.send((statusCode, body) -> {
+                    // the token is taken before the response is given up, out of budget it is read as it is
+                    if (!lastAttempt && isRetryable(statusCode) && budget.tryWithdraw()) {
+                        throw new RetryableStatusException(statusCode);
+                    }
+                    return handler.handle(statusCode, body);
+                });
+            } catch (RetryableStatusException ex) {
+                // retried below
+            } catch (IOException ex) {
+                if (lastAttempt || ex instanceof InterruptedIOException || !budget.tryWithdraw()) {
+                    throw ex;
+                }
+            }
+            backoff(attempt);
+        }
+    }
+
+    private void backoff(int attempt) throws IOException {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 30));
+        if (cap <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off before a retry");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+
+        T send(BodyHandler<T> handler) throws IOException;
+    }
+
+    /**
+     * Thrown from the handler to abandon a response worth retrying without reading it
+     */
+    private static final class RetryableStatusException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private RetryableStatusException(int statusCode) {
+            super("Retryable status " + statusCode);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.lindar.postcodes.io.client.util;
+
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV support: comma separated fields, optionally enclosed
+ * in double quotes, with doubled double quotes standing for a literal one.
+ * Fields spanning several lines are not supported.
+ *
+ * @author iulian
+ */
+public final class CsvLineParser {
+
+    private CsvLineParser() {
+    }
+
+    /**
+     * Splits a CSV line into the given list, clearing it first so the same
+     * list can be reused for every line of a file
+     *
+     * @param line the CSV line, without the line terminator
+     * @param fields receives the unquoted fields
+     */
+    public static void parse(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder quoted = null;
+        int start = 0;
+        int i = 0;
+        int length = line.length();
+        while (i <= length) {
+            if (i < length && line.charAt(i) == '"' && i == start) {
+                quoted = quoted == null ? new StringBuilder() : quoted;
+                quoted.setLength(0);
+                i++;
+                while (i < length) {
+                    char c = line.charAt(i);
+                    if (c == '"') {
+                        if (i + 1 < length && line.charAt(i + 1) == '"') {
+                            quoted.append('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    quoted.append(c);
+                    i++;
+                }
+                while (i < length && line.charAt(i) != ',') {
+                    i++;
+                }
+                fields.add(quoted.toString());
+                start = ++i;
+                if (i > length) {
+                    return;
+                }
+                continue;
+            }
+            if (i == length || line.charAt(i) == ',') {
+                fields.add(line.substring(start, i));
+                start = i + 1;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Formats a value as a CSV field, quoting it only when needed
+     *
+     * @param value the value, null is written as an empty field
+     * @return
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Gson adapter for String fields with a small vocabulary: every value read is
+ * interned through {@link StringDictionary#POSTCODE_FIELDS}. Used as
+ * {@code @JsonAdapter(DictionaryStringAdapter.class)} on a field.
+ *
+ * @author iulian
+ */
+public final class DictionaryStringAdapter extends TypeAdapter<String> {
+
+    @Override
+    public void write(JsonWriter out, String value) throws IOException {
+        out.value(value);
+    }
+
+    @Override
+    public String read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return StringDictionary.POSTCODE_FIELDS.intern(in.nextString());
+    }
+}
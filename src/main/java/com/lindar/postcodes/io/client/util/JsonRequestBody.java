@@ -0,0 +1,106 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.google.gson.stream.JsonWriter;
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * JSON request body that is written straight into the outgoing request
+ * stream, with proper escaping, instead of being built as a String first.
+ *
+ * @author iulian
+ */
+public abstract class JsonRequestBody {
+
+    /**
+     * Body of a bulk postcode lookup: {"postcodes": ["...", ...]}
+     *
+     * @param postcodes
+     * @return
+     */
+    public static JsonRequestBody bulkPostcodes(List<String> postcodes) {
+        return new JsonRequestBody() {
+            @Override
+            protected void write(JsonWriter json) throws IOException {
+                json.beginObject().name("postcodes").beginArray();
+                for (String postcode : postcodes) {
+                    json.value(postcode);
+                }
+                json.endArray().endObject();
+            }
+        };
+    }
+
+    /**
+     * Body of a bulk reverse geocoding: {"geolocations": [{...}, ...]}. Radius
+     * and limit are only sent when positive and wide search only when enabled,
+     * so Postcodes.io applies its defaults otherwise
+     *
+     * @param geolocations
+     * @return
+     */
+    public static JsonRequestBody bulkGeolocations(List<Geolocation> geolocations) {
+        return new JsonRequestBody() {
+            @Override
+            protected void write(JsonWriter json) throws IOException {
+                json.beginObject().name("geolocations").beginArray();
+                for (Geolocation geolocation : geolocations) {
+                    json.beginObject()
+                            .name("longitude").value(geolocation.getLongitude())
+                            .name("latitude").value(geolocation.getLatitude());
+                    if (geolocation.getRadius() > 0) {
+                        json.name("radius").value(geolocation.getRadius());
+                    }
+                    if (geolocation.getLimit() > 0) {
+                        json.name("limit").value(geolocation.getLimit());
+                    }
+                    if (geolocation.isWideSearch()) {
+                        json.name("wideSearch").value(true);
+                    }
+                    json.endObject();
+                }
+                json.endArray().endObject();
+            }
+        };
+    }
+
+    /**
+     * Writes the body as UTF-8 JSON. The stream is flushed but not closed
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Utf8StreamWriter writer = new Utf8StreamWriter(out);
+        write(new JsonWriter(writer));
+        writer.flush();
+    }
+
+    /**
+     * The same body, reporting its size every time it is written
+     *
+     * @param bytesWritten receives the number of bytes written
+     * @return
+     */
+    public JsonRequestBody counting(LongConsumer bytesWritten) {
+        JsonRequestBody body = this;
+        return new JsonRequestBody() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                CountingOutputStream counted = new CountingOutputStream(out);
+                body.writeTo(counted);
+                bytesWritten.accept(counted.getCount());
+            }
+
+            @Override
+            protected void write(JsonWriter json) throws IOException {
+                body.write(json);
+            }
+        };
+    }
+
+    protected abstract void write(JsonWriter json) throws IOException;
+}
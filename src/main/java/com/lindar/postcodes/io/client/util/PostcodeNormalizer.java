@@ -0,0 +1,162 @@
+package com.lindar.postcodes.io.client.util;
+
+/**
+ * Parses UK postcodes without regular expressions or intermediate Strings. A
+ * postcode is an outward code of one or two letters, a digit and an optional
+ * letter or digit, followed by an inward code of a digit and two letters -
+ * the same structure Postcodes.io checks. Case and whitespace are ignored,
+ * so "sw1a1aa", " SW1A 1AA " and "Sw1a  1aA" are the same postcode.
+ * <p>
+ * The input is run once through a small state machine over the letter/digit
+ * class of each character. The only allocation is the returned String, and
+ * not even that when the input already is in the requested form.
+ *
+ * @author iulian
+ */
+public final class PostcodeNormalizer {
+
+    private static final int REJECT = -1;
+    private static final int ACCEPT = 8;
+
+    /**
+     * TRANSITIONS[state][0] is the next state on a letter, TRANSITIONS[state][1] on a digit
+     */
+    private static final int[][] TRANSITIONS = {
+        {1, REJECT},       // 0: start
+        {2, 3},            // 1: first outward letter
+        {REJECT, 3},       // 2: second outward letter
+        {4, 5},            // 3: outward digit
+        {REJECT, 6},       // 4: optional outward letter, the next digit is the inward one
+        {7, 6},            // 5: a second digit, either the optional outward one or the inward one
+        {7, REJECT},       // 6: inward digit
+        {ACCEPT, REJECT},  // 7: first inward letter
+        {REJECT, REJECT}   // 8: second inward letter, complete
+    };
+
+    private PostcodeNormalizer() {
+    }
+
+    /**
+     * @param postcode
+     * @return true when the input has the structure of a UK postcode
+     */
+    public static boolean isValid(CharSequence postcode) {
+        return postcode != null && parse(postcode) > 0;
+    }
+
+    /**
+     * Formats a postcode the way Royal Mail does: upper case with a single
+     * space between the outward and the inward code, for example "SW1A 1AA"
+     *
+     * @param postcode
+     * @return the formatted postcode or null when the input isn't a structurally valid postcode
+     */
+    public static String normalize(String postcode) {
+        return format(postcode, true);
+    }
+
+    /**
+     * Compact canonical form of a postcode: upper case without whitespace, for
+     * example "SW1A1AA". It identifies a postcode in caches and indexes and
+     * is safe to use in a URL path
+     *
+     * @param postcode
+     * @return the compact postcode or null when the input isn't a structurally valid postcode
+     */
+    public static String key(String postcode) {
+        return format(postcode, false);
+    }
+
+    /**
+     * @param key a compact canonical postcode
+     * @return the outward code, for example "SW1A"
+     */
+    public static String outcode(String key) {
+        return key.substring(0, key.length() - 3);
+    }
+
+    /**
+     * @param key a compact canonical postcode
+     * @return the inward code, for example "1AA"
+     */
+    public static String incode(String key) {
+        return key.substring(key.length() - 3);
+    }
+
+    private static String format(String postcode, boolean withSpace) {
+        if (postcode == null) {
+            return null;
+        }
+        int length = parse(postcode);
+        if (length < 0) {
+            return null;
+        }
+        int outwardLength = length - 3;
+        int formattedLength = withSpace ? length + 1 : length;
+        if (postcode.length() == formattedLength && isFormatted(postcode, outwardLength, withSpace)) {
+            return postcode;
+        }
+        char[] formatted = new char[formattedLength];
+        int position = 0;
+        for (int i = 0; i < postcode.length(); i++) {
+            char c = postcode.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (withSpace && position == outwardLength) {
+                formatted[position++] = ' ';
+            }
+            formatted[position++] = upperCase(c);
+        }
+        return new String(formatted);
+    }
+
+    /**
+     * Runs the state machine over the input
+     *
+     * @return the number of letters and digits of a valid postcode, -1 when invalid
+     */
+    private static int parse(CharSequence postcode) {
+        int state = 0;
+        int length = 0;
+        for (int i = 0; i < postcode.length(); i++) {
+            char c = postcode.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            int input;
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                input = 0;
+            } else if (c >= '0' && c <= '9') {
+                input = 1;
+            } else {
+                return REJECT;
+            }
+            state = TRANSITIONS[state][input];
+            if (state == REJECT) {
+                return REJECT;
+            }
+            length++;
+        }
+        return state == ACCEPT ? length : REJECT;
+    }
+
+    private static boolean isFormatted(String postcode, int outwardLength, boolean withSpace) {
+        for (int i = 0; i < postcode.length(); i++) {
+            char c = postcode.charAt(i);
+            boolean spacePosition = withSpace && i == outwardLength;
+            if (spacePosition ? c != ' ' : (c == ' ' || upperCase(c) != c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\u00A0';
+    }
+
+    private static char upperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
@@ -1,8 +1,13 @@
 package com.lindar.postcodes.io.client.util;
 
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.lang3.StringUtils;
 
 /**
+ * URLs of the Postcodes.io endpoints. The typed methods build a request URL
+ * from precomputed parts: parameters are validated, percent-encoded and
+ * appended to a per thread buffer, so a URL costs the final String only. The
+ * String templates are kept for the code still formatting its own URLs.
  *
  * @author iulian
  */
@@ -10,6 +15,19 @@ public final class PostcodesAPI {
 
     private static final String POSTCODES_IO_API_ROOT_PATH = "http://api.postcodes.io/";
 
+    /**
+     * Highest limit Postcodes.io accepts
+     */
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Highest nearest postcodes radius in metres Postcodes.io accepts
+     */
+    public static final int MAX_RADIUS = 2000;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
     public final String API_ROOT_PATH;
 
     public String POSTCODES_IO_POSTCODES_API_ROOT_PATH;
@@ -28,6 +46,9 @@ public final class PostcodesAPI {
     public String AUTOCOMPLETE_POSTCODE;
     public String QUERY_POSTCODE;
 
+    private String postcodesPath;
+    private String randomPostcodePath;
+
     /**
      *
      * Creates a Postcodes.io client with the default API root path:
@@ -71,5 +92,205 @@ public final class PostcodesAPI {
 
         AUTOCOMPLETE_POSTCODE = POSTCODES_IO_POSTCODES_API_ROOT_PATH + "%s/autocomplete";
         QUERY_POSTCODE = POSTCODES_IO_POSTCODES_API_ROOT_PATH + "?q=%s";
+
+        postcodesPath = POSTCODES_IO_POSTCODES_API_ROOT_PATH;
+        randomPostcodePath = RANDOM_POSTCODE;
+    }
+
+    /**
+     * @param postcode
+     * @return the URL of a postcode lookup
+     * @throws IllegalArgumentException when the postcode is blank
+     */
+    public String lookupPostcode(String postcode) {
+        return encode(buffer(postcodesPath), required(postcode, "postcode")).toString();
+    }
+
+    /**
+     * @param postcode
+     * @return the URL of a postcode validation
+     * @throws IllegalArgumentException when the postcode is blank
+     */
+    public String validatePostcode(String postcode) {
+        return encode(buffer(postcodesPath), required(postcode, "postcode")).append("/validate").toString();
+    }
+
+    /**
+     * @param postcode
+     * @param limit 0 for the Postcodes.io default
+     * @param radius in metres, 0 for the Postcodes.io default
+     * @return the URL of the nearest postcodes for a postcode
+     * @throws IllegalArgumentException when the postcode is blank, or the limit
+     * or radius is out of range
+     */
+    public String nearestPostcodesForPostcode(String postcode, int limit, int radius) {
+        StringBuilder url = encode(buffer(postcodesPath), required(postcode, "postcode")).append("/nearest");
+        char separator = '?';
+        if (limit(limit) > 0) {
+            url.append(separator).append("limit=").append(limit);
+            separator = '&';
+        }
+        if (radius(radius) > 0) {
+            url.append(separator).append("radius=").append(radius);
+        }
+        return url.toString();
+    }
+
+    /**
+     * @param longitude
+     * @param latitude
+     * @param limit 0 for the Postcodes.io default
+     * @param radius in metres, 0 for the Postcodes.io default
+     * @param wideSearch only sent when true
+     * @return the URL of the nearest postcodes for a location
+     * @throws IllegalArgumentException when a coordinate, the limit or the
+     * radius is out of range
+     */
+    public String nearestPostcodes(double longitude, double latitude, int limit, int radius, boolean wideSearch) {
+        if (!isValidCoordinate(longitude, latitude)) {
+            throw new IllegalArgumentException("The longitude needs to be between -180 and 180 and the latitude between -90 and 90");
+        }
+        StringBuilder url = buffer(postcodesPath).append("?lon=").append(longitude).append("&lat=").append(latitude);
+        if (limit(limit) > 0) {
+            url.append("&limit=").append(limit);
+        }
+        if (radius(radius) > 0) {
+            url.append("&radius=").append(radius);
+        }
+        if (wideSearch) {
+            url.append("&wideSearch=true");
+        }
+        return url.toString();
+    }
+
+    /**
+     * @param outcode null or blank for any postcode
+     * @return the URL of a random postcode
+     */
+    public String randomPostcode(String outcode) {
+        if (StringUtils.isBlank(outcode)) {
+            return randomPostcodePath;
+        }
+        return encode(buffer(randomPostcodePath).append("?outcode="), outcode.trim()).toString();
+    }
+
+    /**
+     * @param partialPostcode
+     * @param limit 0 for the Postcodes.io default
+     * @return the URL of a postcode autocompletion
+     * @throws IllegalArgumentException when the partial postcode is blank or
+     * the limit is out of range
+     */
+    public String autocompletePostcode(String partialPostcode, int limit) {
+        StringBuilder url = encode(buffer(postcodesPath), required(partialPostcode, "partial postcode")).append("/autocomplete");
+        if (limit(limit) > 0) {
+            url.append("?limit=").append(limit);
+        }
+        return url.toString();
+    }
+
+    /**
+     * @param query
+     * @param limit 0 for the Postcodes.io default
+     * @return the URL of a postcode query
+     * @throws IllegalArgumentException when the query is blank or the limit is
+     * out of range
+     */
+    public String queryPostcode(String query, int limit) {
+        StringBuilder url = encode(buffer(postcodesPath).append("?q="), required(query, "query"));
+        if (limit(limit) > 0) {
+            url.append("&limit=").append(limit);
+        }
+        return url.toString();
+    }
+
+    private static StringBuilder buffer(String path) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return buffer.append(path);
+    }
+
+    /**
+     * Percent-encodes everything but the unreserved characters of RFC 3986,
+     * which is right both in a path segment and in a query value. Postcodes
+     * only have unreserved characters and a space, so they are appended as
+     * they are, bar the space
+     */
+    private static StringBuilder encode(StringBuilder url, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                url.append(c);
+            } else if (c == ' ') {
+                url.append("%20");
+            } else if (c < 0x80) {
+                appendEscaped(url, c);
+            } else {
+                for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+                    if (isUnreserved((char) b)) {
+                        url.append((char) b);
+                    } else {
+                        appendEscaped(url, b & 0xFF);
+                    }
+                }
+                break;
+            }
+        }
+        return url;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static void appendEscaped(StringBuilder url, int b) {
+        url.append('%').append(HEX_DIGITS[b >> 4]).append(HEX_DIGITS[b & 0xF]);
+    }
+
+    private static String required(String value, String name) {
+        if (StringUtils.isBlank(value)) {
+            throw new IllegalArgumentException("You provided a blank " + name);
+        }
+        return value.trim();
+    }
+
+    /**
+     * @param longitude
+     * @param latitude
+     * @return true when the longitude is between -180 and 180 and the latitude between -90 and 90
+     */
+    public static boolean isValidCoordinate(double longitude, double latitude) {
+        return longitude >= -180 && longitude <= 180 && latitude >= -90 && latitude <= 90;
+    }
+
+    /**
+     * @param limit
+     * @return true when the limit is between 1 and {@value #MAX_LIMIT}, or 0 for the default
+     */
+    public static boolean isValidLimit(int limit) {
+        return limit >= 0 && limit <= MAX_LIMIT;
+    }
+
+    /**
+     * @param radius in metres
+     * @return true when the radius is between 1 and {@value #MAX_RADIUS}, or 0 for the default
+     */
+    public static boolean isValidRadius(int radius) {
+        return radius >= 0 && radius <= MAX_RADIUS;
+    }
+
+    private static int limit(int limit) {
+        if (!isValidLimit(limit)) {
+            throw new IllegalArgumentException("The limit needs to be between 1 and " + MAX_LIMIT + ", or 0 for the default");
+        }
+        return limit;
+    }
+
+    private static int radius(int radius) {
+        if (!isValidRadius(radius)) {
+            throw new IllegalArgumentException("The radius needs to be between 1 and " + MAX_RADIUS + " metres, or 0 for the default");
+        }
+        return radius;
     }
 }
@@ -0,0 +1,113 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads a Postcodes.io response of a given type straight from the response
+ * body stream, without buffering the body as a String first. The underlying
+ * Gson type adapter is resolved once, so a reader is meant to be created once
+ * per response type and shared - it is thread safe.
+ * <p>
+ * A reader can be restricted to some {@link PostcodeVO} fields: the others
+ * are skipped in the JSON stream without being decoded or allocated.
+ *
+ * @author iulian
+ * @param <T> type of the response data
+ */
+public final class ResponseReader<T> {
+
+    private static final Gson GSON = new Gson();
+    private static final ConcurrentMap<Set<PostcodeField>, Gson> PROJECTING_GSONS = new ConcurrentHashMap<>();
+
+    private final TypeAdapter<Response<T>> adapter;
+
+    /**
+     * @param responseType the full response type, for example
+     * {@code new TypeToken<Response<PostcodeVO>>() {}}
+     */
+    public ResponseReader(TypeToken<Response<T>> responseType) {
+        this.adapter = GSON.getAdapter(responseType);
+    }
+
+    /**
+     * @param responseType the full response type
+     * @param postcodeFields the PostcodeVO fields to read, null for all of them
+     */
+    public ResponseReader(TypeToken<Response<T>> responseType, Set<PostcodeField> postcodeFields) {
+        Gson gson = postcodeFields == null ? GSON : PROJECTING_GSONS.computeIfAbsent(
+                postcodeFields.isEmpty() ? EnumSet.noneOf(PostcodeField.class) : EnumSet.copyOf(postcodeFields), ResponseReader::projectingGson);
+        this.adapter = gson.getAdapter(responseType);
+    }
+
+    private static Gson projectingGson(Set<PostcodeField> postcodeFields) {
+        Set<String> fieldNames = new HashSet<>();
+        for (PostcodeField field : postcodeFields) {
+            fieldNames.add(field.getFieldName());
+        }
+        return new GsonBuilder().addDeserializationExclusionStrategy(new ExclusionStrategy() {
+            @Override
+            public boolean shouldSkipField(FieldAttributes field) {
+                return field.getDeclaringClass() == PostcodeVO.class && !fieldNames.contains(field.getName());
+            }
+
+            @Override
+            public boolean shouldSkipClass(Class<?> type) {
+                return false;
+            }
+        }).create();
+    }
+
+    /**
+     * Reads the response from the body stream. An empty body, or an
+     * unparseable body of an error status (an HTML error page from a proxy for
+     * example), gives a response holding just the HTTP status code
+     *
+     * @param body the response body, it is not closed by this method
+     * @param statusCode the HTTP status code of the response
+     * @return
+     * @throws IOException when the body can't be read
+     * @throws JsonParseException when the body of a successful response isn't the expected JSON
+     */
+    public Response<T> read(InputStream body, int statusCode) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        try {
+            reader.peek();
+        } catch (EOFException emptyBody) {
+            return Response.of(statusCode, null);
+        }
+        try {
+            Response<T> response = adapter.read(reader);
+            if (response.getStatus() == 0) {
+                response.setStatus(statusCode);
+            }
+            return response;
+        } catch (MalformedJsonException | IllegalStateException | JsonParseException ex) {
+            if (statusCode >= 400) {
+                return Response.of(statusCode, null);
+            }
+            throw ex instanceof JsonParseException ? (JsonParseException) ex : new JsonParseException(ex);
+        }
+    }
+}
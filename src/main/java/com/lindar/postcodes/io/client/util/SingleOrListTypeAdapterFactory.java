@@ -0,0 +1,58 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a List field that Postcodes.io sends either as an array or as a single
+ * object - bulk postcode lookups return one result per query while bulk reverse
+ * geocoding returns a list. A single object is wrapped in a one item list.
+ *
+ * @author iulian
+ */
+public final class SingleOrListTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!List.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        Type elementType = type.getType() instanceof ParameterizedType
+                ? ((ParameterizedType) type.getType()).getActualTypeArguments()[0] : Object.class;
+        TypeAdapter<T> listAdapter = gson.getAdapter(type);
+        TypeAdapter<Object> elementAdapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(elementType));
+
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                listAdapter.write(out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                JsonToken token = in.peek();
+                if (token == JsonToken.BEGIN_ARRAY) {
+                    return listAdapter.read(in);
+                }
+                if (token == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                List<Object> single = new ArrayList<>(1);
+                single.add(elementAdapter.read(in));
+                return (T) single;
+            }
+        };
+    }
+}
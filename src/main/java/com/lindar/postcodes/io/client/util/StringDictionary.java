@@ -0,0 +1,62 @@
+package com.lindar.postcodes.io.client.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe dictionary that makes equal strings share a single instance.
+ * Postcode records repeat the same few thousand area names and codes millions
+ * of times, so keeping one copy of each turns a per-record String into a
+ * shared reference. It is bounded: once full, new values are returned as they
+ * are instead of being added, so unexpected input can't grow it forever.
+ *
+ * @author iulian
+ */
+public final class StringDictionary {
+
+    /**
+     * Dictionary shared by the postcode administrative fields, big enough for
+     * every area name and code of the UK
+     */
+    public static final StringDictionary POSTCODE_FIELDS = new StringDictionary(200000);
+
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize maximum number of distinct values kept
+     */
+    public StringDictionary(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size can't be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param value
+     * @return the shared instance equal to the value, or the value itself when
+     * it is null or the dictionary is full
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = values.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        shared = values.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    /**
+     * @return the number of distinct values kept
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,111 @@
+package com.lindar.postcodes.io.client.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer that encodes characters to UTF-8 straight into a byte buffer and
+ * hands full buffers to the underlying stream. The buffer is borrowed from a
+ * per thread pool, so writing a request body doesn't allocate a new buffer or
+ * any intermediate String. Unpaired surrogates are written as '?'.
+ *
+ * @author iulian
+ */
+final class Utf8StreamWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    Utf8StreamWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = BUFFERS.get();
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeCodePoint(Character.isSurrogate((char) c) ? '?' : (char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                writeCodePoint(Character.toCodePoint(c, chars[++i]));
+            } else {
+                writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(string.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, string.charAt(++i)));
+            } else {
+                writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+    }
+
+    private void writeCodePoint(int codePoint) throws IOException {
+        ensureCapacity(4);
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes the buffered bytes but leaves the underlying stream open, it belongs to the caller
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
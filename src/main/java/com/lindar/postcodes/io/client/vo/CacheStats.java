@@ -0,0 +1,29 @@
+package com.lindar.postcodes.io.client.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * Point in time statistics of a client side cache
+ *
+ * @author iulian
+ */
+@Data
+public class CacheStats implements Serializable {
+    private static final long serialVersionUID = 4870125698741236985L;
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+    private final long weight;
+
+    /**
+     * Ratio of lookups that were served from the cache, 1.0 when there were no lookups yet
+     * @return
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
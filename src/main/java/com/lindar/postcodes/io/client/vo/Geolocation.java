@@ -11,8 +11,8 @@ import lombok.Data;
 public class Geolocation implements Serializable {
     private static final long serialVersionUID = 1000288545612358789L;
     
-    private long longitude;
-    private long latitude;
+    private double longitude;
+    private double latitude;
     private int radius;
     private int limit;
     private boolean wideSearch;
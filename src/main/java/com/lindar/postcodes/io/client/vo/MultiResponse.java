@@ -1,6 +1,8 @@
 package com.lindar.postcodes.io.client.vo;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.lindar.postcodes.io.client.util.SingleOrListTypeAdapterFactory;
 import java.io.Serializable;
 import java.util.List;
 import lombok.Data;
@@ -18,5 +20,6 @@ public class MultiResponse<T, U> implements Serializable {
     private T query;
     
     @SerializedName("result")
+    @JsonAdapter(SingleOrListTypeAdapterFactory.class)
     private List<U> results;
 }
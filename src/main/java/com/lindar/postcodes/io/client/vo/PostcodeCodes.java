@@ -1,6 +1,9 @@
 package com.lindar.postcodes.io.client.vo;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.lindar.postcodes.io.client.util.DictionaryStringAdapter;
+import com.lindar.postcodes.io.client.util.StringDictionary;
 import java.io.Serializable;
 import lombok.Data;
 
@@ -13,15 +16,66 @@ public class PostcodeCodes implements Serializable {
     private static final long serialVersionUID = 1987456231547896432L;
     
     @SerializedName("admin_district")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminDistrict;
     
     @SerializedName("admin_county")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminCounty;
     
     @SerializedName("admin_ward")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminWard;
     
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String parish;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String ccg;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String nuts;
+
+    @SerializedName("parliamentary_constituency")
+    @JsonAdapter(DictionaryStringAdapter.class)
+    private String parliamentaryConstituency;
+
+    @JsonAdapter(DictionaryStringAdapter.class)
+    private String lsoa;
+    @JsonAdapter(DictionaryStringAdapter.class)
+    private String msoa;
+
+    public void setAdminDistrict(String adminDistrict) {
+        this.adminDistrict = StringDictionary.POSTCODE_FIELDS.intern(adminDistrict);
+    }
+
+    public void setAdminCounty(String adminCounty) {
+        this.adminCounty = StringDictionary.POSTCODE_FIELDS.intern(adminCounty);
+    }
+
+    public void setAdminWard(String adminWard) {
+        this.adminWard = StringDictionary.POSTCODE_FIELDS.intern(adminWard);
+    }
+
+    public void setParish(String parish) {
+        this.parish = StringDictionary.POSTCODE_FIELDS.intern(parish);
+    }
+
+    public void setCcg(String ccg) {
+        this.ccg = StringDictionary.POSTCODE_FIELDS.intern(ccg);
+    }
+
+    public void setNuts(String nuts) {
+        this.nuts = StringDictionary.POSTCODE_FIELDS.intern(nuts);
+    }
+
+    public void setParliamentaryConstituency(String parliamentaryConstituency) {
+        this.parliamentaryConstituency = StringDictionary.POSTCODE_FIELDS.intern(parliamentaryConstituency);
+    }
+
+    public void setLsoa(String lsoa) {
+        this.lsoa = StringDictionary.POSTCODE_FIELDS.intern(lsoa);
+    }
+
+    public void setMsoa(String msoa) {
+        this.msoa = StringDictionary.POSTCODE_FIELDS.intern(msoa);
+    }
 }
@@ -0,0 +1,82 @@
+package com.lindar.postcodes.io.client.vo;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * The fields of {@link PostcodeVO}, used to choose which of them are read from
+ * Postcodes.io responses
+ *
+ * @author iulian
+ */
+public enum PostcodeField {
+
+    POSTCODE("postcode", PostcodeVO::getPostcode),
+    QUALITY("quality", PostcodeVO::getQuality),
+    EASTINGS("eastings", postcode -> gridReference(postcode.getEastings())),
+    NORTHINGS("northings", postcode -> gridReference(postcode.getNorthings())),
+    COUNTRY("country", PostcodeVO::getCountry),
+    NHS_HA("nhsHa", PostcodeVO::getNhsHa),
+    LONGITUDE("longitude", postcode -> coordinate(postcode.getLongitude())),
+    LATITUDE("latitude", postcode -> coordinate(postcode.getLatitude())),
+    PARLIAMENTARY_CONSTITUENCY("parliamentaryConstituency", PostcodeVO::getParliamentaryConstituency),
+    EUROPEAN_ELECTORAL_REGION("europeanElectoralRegion", PostcodeVO::getEuropeanElectoralRegion),
+    PRIMARY_CARE_TRUST("primaryCareTrust", PostcodeVO::getPrimaryCareTrust),
+    REGION("region", PostcodeVO::getRegion),
+    LSOA("lsoa", PostcodeVO::getLsoa),
+    MSOA("msoa", PostcodeVO::getMsoa),
+    INCODE("incode", PostcodeVO::getIncode),
+    OUTCODE("outcode", PostcodeVO::getOutcode),
+    ADMIN_DISTRICT("adminDistrict", PostcodeVO::getAdminDistrict),
+    PARISH("parish", PostcodeVO::getParish),
+    ADMIN_COUNTY("adminCounty", PostcodeVO::getAdminCounty),
+    ADMIN_WARD("adminWard", PostcodeVO::getAdminWard),
+    CCG("ccg", PostcodeVO::getCcg),
+    NUTS("nuts", PostcodeVO::getNuts),
+    CODES("codes", postcode -> null);
+
+    private final String fieldName;
+    private final Function<PostcodeVO, String> textValue;
+
+    PostcodeField(String fieldName, Function<PostcodeVO, String> textValue) {
+        this.fieldName = fieldName;
+        this.textValue = textValue;
+    }
+
+    /**
+     * @return the name of the PostcodeVO field
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return the name of the field in Postcodes.io JSON, for example "admin_district"
+     */
+    public String getJsonName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The value of this field of a postcode as text, as written to a CSV
+     *
+     * @param postcode
+     * @return the value, null when the postcode has none or the field is {@link #CODES}
+     */
+    public String textValueOf(PostcodeVO postcode) {
+        return textValue.apply(postcode);
+    }
+
+    private static String gridReference(int value) {
+        return value != PostcodeVO.NO_GRID_REFERENCE ? Integer.toString(value) : null;
+    }
+
+    /**
+     * Plain decimal notation: Double.toString writes a longitude near
+     * Greenwich such as -0.000562 as -5.62E-4
+     */
+    private static String coordinate(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value).toPlainString();
+    }
+}
@@ -1,50 +1,82 @@
 package com.lindar.postcodes.io.client.vo;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.lindar.postcodes.io.client.util.DictionaryStringAdapter;
+import com.lindar.postcodes.io.client.util.StringDictionary;
 import java.io.Serializable;
 import lombok.Data;
 
+/**
+ * Postcode data. Fields with a small vocabulary - area names and codes, the
+ * outward and inward codes - are interned through
+ * {@link StringDictionary#POSTCODE_FIELDS} both when parsed and when set, so
+ * millions of cached records share a single copy of each value. Coordinates
+ * and grid references are decoded once, when parsed, into primitive fields.
+ */
 @Data
 public class PostcodeVO implements Serializable {
 
-    private static final long serialVersionUID = 5125897426200556607L;
+    private static final long serialVersionUID = 5125897426200556608L;
+
+    /**
+     * Value of eastings and northings for postcodes without a grid reference
+     */
+    public static final int NO_GRID_REFERENCE = -1;
 
     private String postcode;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String quality;
-    private String eastings;
-    private String northings;
+    private int eastings = NO_GRID_REFERENCE;
+    private int northings = NO_GRID_REFERENCE;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String country;
 
     @SerializedName("nhs_ha")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String nhsHa;
-    private String longitude;
-    private String latitude;
+    private double longitude = Double.NaN;
+    private double latitude = Double.NaN;
     
     @SerializedName("parliamentary_constituency")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String parliamentaryConstituency;
     
     @SerializedName("european_electoral_region")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String europeanElectoralRegion;
     
     @SerializedName("primary_care_trust")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String primaryCareTrust;
     
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String region;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String lsoa;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String msoa;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String incode;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String outcode;
     
     @SerializedName("admin_district")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminDistrict;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String parish;
     
     @SerializedName("admin_county")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminCounty;
     
     @SerializedName("admin_ward")
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String adminWard;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String ccg;
+    @JsonAdapter(DictionaryStringAdapter.class)
     private String nuts;
     private PostcodeCodes codes;
     
@@ -82,18 +114,18 @@ public class PostcodeVO implements Serializable {
     /**
      * Eastings. The Ordnance Survey postcode grid reference Easting to 1 metre resolution; blank for postcodes in the Channel Islands and the Isle of Man. 
      * Grid references for postcodes in Northern Ireland relate to the Irish Grid system
-     * @return
+     * @return the eastings or {@link #NO_GRID_REFERENCE}
      */
-    public String getEastings() {
+    public int getEastings() {
         return eastings;
     }
 
     /**
      * Northings. The Ordnance Survey postcode grid reference Northing to 1 metre resolution; blank for postcodes in the Channel Islands and the Isle of Man. 
      * Grid references for postcodes in Northern Ireland relate to the Irish Grid system.
-     * @return
+     * @return the northings or {@link #NO_GRID_REFERENCE}
      */
-    public String getNorthings() {
+    public int getNorthings() {
         return northings;
     }
 
@@ -115,17 +147,17 @@ public class PostcodeVO implements Serializable {
 
     /**
      * Longitude. The WGS84 longitude given the Postcode's national grid reference
-     * @return
+     * @return the longitude or NaN when the postcode has no location
      */
-    public String getLongitude() {
+    public double getLongitude() {
         return longitude;
     }
 
     /**
      * Latitude. The WGS84 latitude given the Postcode's national grid reference
-     * @return
+     * @return the latitude or NaN when the postcode has no location
      */
-    public String getLatitude() {
+    public double getLatitude() {
         return latitude;
     }
 
@@ -256,4 +288,78 @@ public class PostcodeVO implements Serializable {
         return codes;
     }
 
+    /**
+     * @return true when the postcode has a longitude and a latitude
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(longitude) && !Double.isNaN(latitude);
+    }
+
+    public void setQuality(String quality) {
+        this.quality = StringDictionary.POSTCODE_FIELDS.intern(quality);
+    }
+
+    public void setCountry(String country) {
+        this.country = StringDictionary.POSTCODE_FIELDS.intern(country);
+    }
+
+    public void setNhsHa(String nhsHa) {
+        this.nhsHa = StringDictionary.POSTCODE_FIELDS.intern(nhsHa);
+    }
+
+    public void setParliamentaryConstituency(String parliamentaryConstituency) {
+        this.parliamentaryConstituency = StringDictionary.POSTCODE_FIELDS.intern(parliamentaryConstituency);
+    }
+
+    public void setEuropeanElectoralRegion(String europeanElectoralRegion) {
+        this.europeanElectoralRegion = StringDictionary.POSTCODE_FIELDS.intern(europeanElectoralRegion);
+    }
+
+    public void setPrimaryCareTrust(String primaryCareTrust) {
+        this.primaryCareTrust = StringDictionary.POSTCODE_FIELDS.intern(primaryCareTrust);
+    }
+
+    public void setRegion(String region) {
+        this.region = StringDictionary.POSTCODE_FIELDS.intern(region);
+    }
+
+    public void setLsoa(String lsoa) {
+        this.lsoa = StringDictionary.POSTCODE_FIELDS.intern(lsoa);
+    }
+
+    public void setMsoa(String msoa) {
+        this.msoa = StringDictionary.POSTCODE_FIELDS.intern(msoa);
+    }
+
+    public void setIncode(String incode) {
+        this.incode = StringDictionary.POSTCODE_FIELDS.intern(incode);
+    }
+
+    public void setOutcode(String outcode) {
+        this.outcode = StringDictionary.POSTCODE_FIELDS.intern(outcode);
+    }
+
+    public void setAdminDistrict(String adminDistrict) {
+        this.adminDistrict = StringDictionary.POSTCODE_FIELDS.intern(adminDistrict);
+    }
+
+    public void setParish(String parish) {
+        this.parish = StringDictionary.POSTCODE_FIELDS.intern(parish);
+    }
+
+    public void setAdminCounty(String adminCounty) {
+        this.adminCounty = StringDictionary.POSTCODE_FIELDS.intern(adminCounty);
+    }
+
+    public void setAdminWard(String adminWard) {
+        this.adminWard = StringDictionary.POSTCODE_FIELDS.intern(adminWard);
+    }
+
+    public void setCcg(String ccg) {
+        this.ccg = StringDictionary.POSTCODE_FIELDS.intern(ccg);
+    }
+
+    public void setNuts(String nuts) {
+        this.nuts = StringDictionary.POSTCODE_FIELDS.intern(nuts);
+    }
 }
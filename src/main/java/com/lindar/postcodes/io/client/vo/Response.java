@@ -17,4 +17,18 @@ public class Response<T> implements Serializable {
     
     @SerializedName("result")
     private T data;
+
+    /**
+     * Creates a response with the given status and data
+     * @param <T>
+     * @param status
+     * @param data
+     * @return
+     */
+    public static <T> Response<T> of(int status, T data) {
+        Response<T> response = new Response<>();
+        response.setStatus(status);
+        response.setData(data);
+        return response;
+    }
 }
@@ -0,0 +1,121 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class BulkRequestDispatcherTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDispatchKeepsInputOrderAndInFlightLimit() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 1050; i++) {
+            queries.add("Q" + i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+
+        BulkRequestDispatcher dispatcher = new BulkRequestDispatcher(new BulkExecutor(executor), 3);
+        Response<List<MultiResponse<String, String>>> result = dispatcher.dispatch(queries, 100, chunk -> {
+            calls.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            assertTrue(chunk.size() <= 100);
+            return echo(chunk, 200);
+        });
+
+        assertEquals(200, result.getStatus());
+        assertEquals(11, calls.get());
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(queries.size(), result.getData().size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(queries.get(i), result.getData().get(i).getQuery());
+        }
+    }
+
+    @Test
+    public void testDispatchReportsFirstFailedChunk() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            queries.add("Q" + i);
+        }
+        BulkRequestDispatcher dispatcher = new BulkRequestDispatcher(new BulkExecutor(executor), 2);
+        Response<List<MultiResponse<String, String>>> result = dispatcher.dispatch(queries, 100,
+                chunk -> chunk.get(0).equals("Q100") ? echo(null, 500) : echo(chunk, 200));
+
+        assertEquals(500, result.getStatus());
+        assertEquals(queries.size(), result.getData().size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(queries.get(i), result.getData().get(i).getQuery());
+        }
+        assertNull(result.getData().get(100).getResults());
+        assertNull(result.getData().get(199).getResults());
+    }
+
+    @Test
+    public void testDispatchFromTheExecutorSendsChunksInline() throws Exception {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            queries.add("Q" + i);
+        }
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            BulkExecutor bulkExecutor = new BulkExecutor(single);
+            BulkRequestDispatcher dispatcher = new BulkRequestDispatcher(bulkExecutor, 2);
+            CompletableFuture<Response<List<MultiResponse<String, String>>>> result = CompletableFuture.supplyAsync(
+                    () -> dispatcher.dispatch(queries, 100, chunk -> echo(chunk, 200)), bulkExecutor);
+
+            // with the only thread waiting for its own chunks this would never complete
+            assertEquals(queries.size(), result.get(5, TimeUnit.SECONDS).getData().size());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private static Response<List<MultiResponse<String, String>>> echo(List<String> chunk, int status) {
+        Response<List<MultiResponse<String, String>>> response = new Response<>();
+        response.setStatus(status);
+        if (chunk != null) {
+            List<MultiResponse<String, String>> data = new ArrayList<>();
+            for (String query : chunk) {
+                MultiResponse<String, String> item = new MultiResponse<>();
+                item.setQuery(query);
+                data.add(item);
+            }
+            response.setData(data);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,98 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class BulkResultIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsStreamInOrderWithBoundedReadAhead() {
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<String> queries = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 100000;
+            }
+
+            @Override
+            public String next() {
+                return "Q" + pulled.getAndIncrement();
+            }
+        };
+
+        BulkResultIterator<String, String> results = new BulkResultIterator<>(queries, 100, 3, executor, chunk -> echo(chunk, 200));
+        int consumed = 0;
+        int maxReadAhead = 0;
+        while (results.hasNext()) {
+            assertEquals("Q" + consumed, results.next().getQuery());
+            consumed++;
+            maxReadAhead = Math.max(maxReadAhead, pulled.get() - consumed);
+        }
+
+        assertEquals(100000, consumed);
+        assertTrue("read ahead " + maxReadAhead, maxReadAhead <= 4 * 100);
+    }
+
+    @Test
+    public void testFailedChunkIsThrownAndIterationGoesOn() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            queries.add("Q" + i);
+        }
+        BulkResultIterator<String, String> results = new BulkResultIterator<>(queries.iterator(), 100, 2, executor,
+                chunk -> chunk.get(0).equals("Q100") ? echo(null, 429) : echo(chunk, 200));
+
+        int consumed = 0;
+        try {
+            while (results.hasNext()) {
+                results.next();
+                consumed++;
+            }
+            fail();
+        } catch (BulkLookupException ex) {
+            assertEquals(429, ex.getStatus());
+            assertEquals("Q100", ex.getQueries().get(0));
+        }
+        assertEquals(100, consumed);
+        assertEquals("Q200", results.next().getQuery());
+    }
+
+    private static Response<List<MultiResponse<String, String>>> echo(List<String> chunk, int status) {
+        List<MultiResponse<String, String>> data = null;
+        if (chunk != null) {
+            data = new ArrayList<>();
+            for (String query : chunk) {
+                MultiResponse<String, String> item = new MultiResponse<>();
+                item.setQuery(query);
+                data.add(item);
+            }
+        }
+        return Response.of(status, data);
+    }
+}
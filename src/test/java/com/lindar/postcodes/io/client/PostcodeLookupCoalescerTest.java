@@ -0,0 +1,139 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class PostcodeLookupCoalescerTest {
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private List<List<String>> batches;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        executor = Executors.newCachedThreadPool();
+        batches = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLookupsWithinWindowShareOneBulkRequest() {
+        PostcodeLookupCoalescer coalescer = new PostcodeLookupCoalescer(this::knowsOnlySW1A1AA, scheduler, executor, 50, 100);
+
+        CompletableFuture<Response<PostcodeVO>> first = coalescer.lookup("SW1A 1AA");
+        CompletableFuture<Response<PostcodeVO>> second = coalescer.lookup("SW1A 1AA");
+        CompletableFuture<Response<PostcodeVO>> unknown = coalescer.lookup("ZZ1 1ZZ");
+
+        assertEquals(200, first.join().getStatus());
+        assertEquals("SW1A 1AA", first.join().getData().getPostcode());
+        assertEquals(200, second.join().getStatus());
+        assertEquals(404, unknown.join().getStatus());
+        assertNull(unknown.join().getData());
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void testFullBatchIsSentWithoutWaitingForTheWindow() {
+        PostcodeLookupCoalescer coalescer = new PostcodeLookupCoalescer(this::knowsOnlySW1A1AA, scheduler, executor, 60000, 3);
+
+        List<CompletableFuture<Response<PostcodeVO>>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(coalescer.lookup("AB" + i + " 1AA"));
+        }
+
+        futures.forEach(future -> assertEquals(404, future.join().getStatus()));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testErrorThrownByTheBulkLookupFailsEveryLookup() throws InterruptedException {
+        PostcodeLookupCoalescer coalescer = new PostcodeLookupCoalescer(postcodes -> {
+            throw new OutOfMemoryError("Simulated");
+        }, scheduler, executor, 10, 100);
+
+        CompletableFuture<Response<PostcodeVO>> first = coalescer.lookup("SW1A 1AA");
+        CompletableFuture<Response<PostcodeVO>> second = coalescer.lookup("M1 1AE");
+
+        assertFailedWith(OutOfMemoryError.class, first);
+        assertFailedWith(OutOfMemoryError.class, second);
+    }
+
+    @Test
+    public void testBatchRejectedByTheExecutorFailsEveryLookup() throws InterruptedException {
+        executor.shutdown();
+        PostcodeLookupCoalescer coalescer = new PostcodeLookupCoalescer(this::knowsOnlySW1A1AA, scheduler, executor, 10, 100);
+
+        assertFailedWith(RejectedExecutionException.class, coalescer.lookup("SW1A 1AA"));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testCloseFailsPendingAndLaterLookups() throws InterruptedException {
+        PostcodeLookupCoalescer coalescer = new PostcodeLookupCoalescer(this::knowsOnlySW1A1AA, scheduler, executor, 60000, 100);
+        CompletableFuture<Response<PostcodeVO>> pending = coalescer.lookup("SW1A 1AA");
+
+        coalescer.close();
+
+        assertFailedWith(RejectedExecutionException.class, pending);
+        assertFailedWith(RejectedExecutionException.class, coalescer.lookup("SW1A 1AA"));
+        assertTrue(batches.isEmpty());
+    }
+
+    private static void assertFailedWith(Class<? extends Throwable> expected, CompletableFuture<Response<PostcodeVO>> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException ex) {
+            assertTrue(expected.isInstance(ex.getCause()));
+        } catch (TimeoutException ex) {
+            fail("The lookup was never completed");
+        }
+    }
+
+    private Response<List<MultiResponse<String, PostcodeVO>>> knowsOnlySW1A1AA(List<String> postcodes) {
+        batches.add(postcodes);
+        List<MultiResponse<String, PostcodeVO>> data = new ArrayList<>();
+        for (String postcode : postcodes) {
+            MultiResponse<String, PostcodeVO> item = new MultiResponse<>();
+            item.setQuery(postcode);
+            if (postcode.equals("SW1A 1AA")) {
+                PostcodeVO postcodeVO = new PostcodeVO();
+                postcodeVO.setPostcode(postcode);
+                item.setResults(Collections.singletonList(postcodeVO));
+            }
+            data.add(item);
+        }
+        Response<List<MultiResponse<String, PostcodeVO>>> response = new Response<>();
+        response.setStatus(200);
+        response.setData(data);
+        return response;
+    }
+}
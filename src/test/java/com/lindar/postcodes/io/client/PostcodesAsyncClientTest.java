@@ -0,0 +1,118 @@
+package com.lindar.postcodes.io.client;
+
+import com.lindar.postcodes.io.client.transport.InMemoryTransport;
+import com.lindar.postcodes.io.client.transport.InMemoryTransport.StubResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class PostcodesAsyncClientTest {
+
+    @Test
+    public void testLookupCompletesWithTheResponse() throws Exception {
+        try (PostcodesAsyncClient client = new PostcodesAsyncClient(client((method, url, body) ->
+                new StubResponse(200, "{\"status\":200,\"result\":{\"postcode\":\"SW1A 1AA\"}}")))) {
+
+            Response<PostcodeVO> response = client.lookupPostcode("SW1A 1AA").get();
+
+            assertEquals(200, response.getStatus());
+            assertEquals("SW1A 1AA", response.getData().getPostcode());
+        }
+    }
+
+    @Test
+    public void testUnexpectedFailureCompletesExceptionally() throws IOException, InterruptedException {
+        try (PostcodesAsyncClient client = new PostcodesAsyncClient(client((method, url, body) ->
+                new StubResponse(200, "{\"status\":200,\"result\":[1]}")))) {
+
+            CompletableFuture<Response<PostcodeVO>> response = client.lookupPostcode("SW1A 1AA");
+            try {
+                response.get();
+                fail("Expected the malformed body to fail the lookup");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof RuntimeException);
+            }
+            assertTrue(response.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testCloseShutsDownTheDefaultExecutorOnly() throws Exception {
+        PostcodesClient postcodesClient = client((method, url, body) -> new StubResponse(404, null));
+        PostcodesAsyncClient client = new PostcodesAsyncClient(postcodesClient);
+        client.close();
+        try {
+            client.lookupPostcode("SW1A 1AA");
+            fail("Expected requests to be rejected once closed");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+        // the client passed in stays usable
+        assertEquals(404, postcodesClient.lookupPostcode("SW1A 1AA").getStatus());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new PostcodesAsyncClient(postcodesClient, executor).close();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultExecutorHasAThreadPerConnection() throws Exception {
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setMaxConnections(3);
+        config.setTransport(new InMemoryTransport((method, url, body) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return new StubResponse(404, null);
+        }));
+        try (PostcodesAsyncClient client = new PostcodesAsyncClient(config)) {
+            List<CompletableFuture<Response<PostcodeVO>>> responses = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                responses.add(client.lookupPostcode("SW1A " + i + "AA"));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(3, maxInFlight.get());
+            release.countDown();
+            for (CompletableFuture<Response<PostcodeVO>> response : responses) {
+                assertEquals(404, response.get(5, TimeUnit.SECONDS).getStatus());
+            }
+        }
+        assertEquals(3, maxInFlight.get());
+    }
+
+    private static PostcodesClient client(InMemoryTransport.Responder responder) {
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setTransport(new InMemoryTransport(responder));
+        return new PostcodesClient(config);
+    }
+}
@@ -0,0 +1,449 @@
+package com.lindar.postcodes.io.client;
+
+import com.google.gson.JsonParseException;
+import com.lindar.postcodes.io.client.metrics.Endpoint;
+import com.lindar.postcodes.io.client.metrics.PostcodesMetricsListener;
+import com.lindar.postcodes.io.client.metrics.RequestMetrics;
+import com.lindar.postcodes.io.client.offline.OfflinePostcodeIndex;
+import com.lindar.postcodes.io.client.transport.CircuitBreakerTransport;
+import com.lindar.postcodes.io.client.transport.InMemoryTransport;
+import com.lindar.postcodes.io.client.transport.InMemoryTransport.StubResponse;
+import com.lindar.postcodes.io.client.transport.PostcodesTransport;
+import com.lindar.postcodes.io.client.util.JsonRequestBody;
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Exercises the client end to end against an in-memory transport
+ *
+ * @author iulian
+ */
+public class PostcodesClientInMemoryTest {
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private final InMemoryTransport.Responder responder = (method, url, body) -> {
+        requests.add(method + " " + url + (body != null ? " " + body : ""));
+        if (method.equals("POST")) {
+            return new StubResponse(200, "{\"status\":200,\"result\":["
+                    + "{\"query\":\"SW1A1AA\",\"result\":{\"postcode\":\"SW1A 1AA\"}},"
+                    + "{\"query\":\"ZZ11ZZ\",\"result\":null}]}");
+        }
+        if (url.endsWith("/SW1A1AA")) {
+            return new StubResponse(200, "{\"status\":200,\"result\":{\"postcode\":\"SW1A 1AA\"}}");
+        }
+        return new StubResponse(404, "{\"status\":404,\"error\":\"Postcode not found\"}");
+    };
+
+    private final InMemoryTransport transport = new InMemoryTransport(responder);
+
+    @Test
+    public void testLookupPostcode() {
+        PostcodesClient client = new PostcodesClient(config());
+
+        Response<PostcodeVO> response = client.lookupPostcode("SW1A 1AA");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("SW1A 1AA", response.getData().getPostcode());
+        assertEquals(Arrays.asList("GET http://api.postcodes.io/postcodes/SW1A1AA"), requests);
+    }
+
+    @Test
+    public void testCachedLookupsSkipTheTransport() {
+        PostcodesClientConfig config = config();
+        config.setCacheEnabled(true);
+        config.setNegativeCacheEnabled(true);
+        PostcodesClient client = new PostcodesClient(config);
+
+        client.lookupPostcode("SW1A 1AA");
+        client.lookupPostcode("ZZ1 1ZZ");
+        assertEquals(200, client.lookupPostcode("sw1a1aa").getStatus());
+        assertEquals(404, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+        assertEquals(Boolean.TRUE, client.validatePostcode("SW1A 1AA").getData());
+        assertEquals(Boolean.FALSE, client.validatePostcode("zz1 1zz").getData());
+
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(2, client.getPostcodeCacheStats().getHitCount());
+    }
+
+    @Test
+    public void testNotFoundAndInvalidPostcodesAreNegativelyCached() {
+        PostcodesClientConfig config = config();
+        config.setNegativeCacheEnabled(true);
+        config.setTransport(new InMemoryTransport((method, url, body) -> {
+            requests.add(method + " " + url);
+            if (method.equals("POST")) {
+                return new StubResponse(200, "{\"status\":200,\"result\":[{\"query\":\"YY11YY\",\"result\":null}]}");
+            }
+            if (url.endsWith("/validate")) {
+                return new StubResponse(200, "{\"status\":200,\"result\":false}");
+            }
+            return new StubResponse(404, "{\"status\":404,\"error\":\"Postcode not found\"}");
+        }));
+        PostcodesClient client = new PostcodesClient(config);
+
+        assertEquals(404, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+        assertEquals(404, client.lookupPostcode("zz11zz").getStatus());
+        assertNull(client.bulkPostcodeLookup(Arrays.asList("YY1 1YY")).getData().get(0).getResults());
+        assertEquals(404, client.lookupPostcode("YY1 1YY").getStatus());
+        assertEquals(Boolean.FALSE, client.validatePostcode("XX1 1XX").getData());
+        assertEquals(Boolean.FALSE, client.validatePostcode("XX1 1XX").getData());
+        assertEquals(404, client.lookupPostcode("XX1 1XX").getStatus());
+
+        assertEquals(Arrays.asList("GET http://api.postcodes.io/postcodes/ZZ11ZZ", "POST http://api.postcodes.io/postcodes/",
+                "GET http://api.postcodes.io/postcodes/XX11XX/validate"), requests);
+        assertEquals(4, client.getNegativeCacheStats().getHitCount());
+        assertEquals(3, client.getNegativeCacheStats().getMissCount());
+        assertEquals(3, client.getNegativeCacheStats().getSize());
+        assertNull(new PostcodesClient(config()).getNegativeCacheStats());
+    }
+
+    @Test
+    public void testBulkLookupOnlySendsCacheMisses() {
+        PostcodesClientConfig config = config();
+        config.setCacheEnabled(true);
+        PostcodesClient client = new PostcodesClient(config);
+        client.lookupPostcode("SW1A 1AA");
+
+        Response<List<MultiResponse<String, PostcodeVO>>> response = client.bulkPostcodeLookup(Arrays.asList("SW1A 1AA", "ZZ1 1ZZ"));
+
+        assertEquals("POST http://api.postcodes.io/postcodes/ {\"postcodes\":[\"ZZ11ZZ\"]}", requests.get(1));
+        assertEquals(2, response.getData().size());
+        assertEquals("SW1A 1AA", response.getData().get(0).getResults().get(0).getPostcode());
+        assertEquals("ZZ1 1ZZ", response.getData().get(1).getQuery());
+        assertNull(response.getData().get(1).getResults());
+    }
+
+    @Test
+    public void testFailedBulkLookupKeepsOneEntryPerPostcode() {
+        PostcodesClientConfig config = config();
+        config.setCacheEnabled(true);
+        config.setTransport(new InMemoryTransport((method, url, body) -> method.equals("POST")
+                ? new StubResponse(503, null) : responder.respond(method, url, body)));
+        PostcodesClient client = new PostcodesClient(config);
+        client.lookupPostcode("SW1A 1AA");
+
+        Response<List<MultiResponse<String, PostcodeVO>>> response = client.bulkPostcodeLookup(Arrays.asList("M1 1AE", "SW1A 1AA", "ZZ1 1ZZ"));
+
+        assertEquals(503, response.getStatus());
+        assertEquals(3, response.getData().size());
+        assertEquals("M1 1AE", response.getData().get(0).getQuery());
+        assertNull(response.getData().get(0).getResults());
+        assertEquals("SW1A 1AA", response.getData().get(1).getResults().get(0).getPostcode());
+        assertEquals("ZZ1 1ZZ", response.getData().get(2).getQuery());
+        assertNull(response.getData().get(2).getResults());
+    }
+
+    @Test
+    public void testMalformedPostcodesNeverReachTheTransport() {
+        PostcodesClient client = new PostcodesClient(config());
+
+        assertEquals(404, client.lookupPostcode("not a postcode").getStatus());
+        assertEquals(Boolean.FALSE, client.validatePostcode("SW1A 1A").getData());
+        Response<List<MultiResponse<String, PostcodeVO>>> response = client.bulkPostcodeLookup(Arrays.asList("12345", "sw1a 1aa", "SW1A1AA"));
+
+        assertEquals(Arrays.asList("POST http://api.postcodes.io/postcodes/ {\"postcodes\":[\"SW1A1AA\"]}"), requests);
+        assertNull(response.getData().get(0).getResults());
+        assertEquals("sw1a 1aa", response.getData().get(1).getQuery());
+        assertEquals("SW1A 1AA", response.getData().get(1).getResults().get(0).getPostcode());
+        assertEquals("SW1A 1AA", response.getData().get(2).getResults().get(0).getPostcode());
+    }
+
+    @Test
+    public void testNearestPostcodesForPostcodeSendsLimitAndRadius() {
+        PostcodesClient client = new PostcodesClient(config());
+
+        client.nearestPostcodesForPostcode("sw1a 1aa", 5, 500);
+
+        assertEquals(Arrays.asList("GET http://api.postcodes.io/postcodes/SW1A1AA/nearest?limit=5&radius=500"), requests);
+    }
+
+    @Test
+    public void testBlankQueryIsABadRequest() {
+        PostcodesClient client = new PostcodesClient(config());
+
+        assertEquals(400, client.queryForPostcode(" ").getStatus());
+        assertEquals(400, client.autocompletePartialPostcode("").getStatus());
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    public void testOutOfRangeArgumentsAreBadRequestsOnlineAndOffline() throws IOException {
+        PostcodesClientConfig offline = config();
+        offline.setOfflineIndex(OfflinePostcodeIndex.load(new StringReader("postcode,longitude,latitude\n"
+                + "SW1A 1AA,-0.141588,51.501009\n")));
+        for (PostcodesClient client : Arrays.asList(new PostcodesClient(config()), new PostcodesClient(offline))) {
+            assertEquals(400, client.reverseGeocoding(-181, 51.5).getStatus());
+            assertEquals(400, client.nearestPostcodesFor(-0.14, 91).getStatus());
+            assertEquals(400, client.reverseGeocoding(-0.14, 51.5, 101).getStatus());
+            assertEquals(400, client.reverseGeocoding(-0.14, 51.5, 10, 2001).getStatus());
+            assertEquals(400, client.reverseGeocoding(Double.NaN, 51.5, true).getStatus());
+            assertEquals(400, client.nearestPostcodesForPostcode("SW1A 1AA", -1).getStatus());
+            assertEquals(400, client.nearestPostcodesForPostcode("SW1A 1AA", 10, -1).getStatus());
+            assertEquals(400, client.autocompletePartialPostcode("SW1A", 101).getStatus());
+            assertEquals(400, client.autocompletePartialPostcode(" ", 10).getStatus());
+            assertEquals(400, client.queryForPostcode("SW1A 1AA", 101).getStatus());
+            assertEquals(400, client.bulkReverseGeocoding(Arrays.asList(geolocation(-0.14, 51.5, 0), geolocation(-181, 51.5, 0))).getStatus());
+            assertEquals(400, client.bulkReverseGeocoding(Collections.singletonList(geolocation(-0.14, 51.5, 101))).getStatus());
+            Geolocation tooWide = geolocation(-0.14, 51.5, 0);
+            tooWide.setRadius(2001);
+            assertEquals(400, client.bulkReverseGeocoding(Collections.singletonList(tooWide)).getStatus());
+        }
+        assertTrue(requests.isEmpty());
+        assertEquals(200, new PostcodesClient(offline).reverseGeocoding(-0.1416, 51.501, 100, 2000).getStatus());
+    }
+
+    private static Geolocation geolocation(double longitude, double latitude, int limit) {
+        Geolocation geolocation = new Geolocation();
+        geolocation.setLongitude(longitude);
+        geolocation.setLatitude(latitude);
+        geolocation.setLimit(limit);
+        return geolocation;
+    }
+
+    @Test
+    public void testTransportFailureIsReportedAs500() {
+        PostcodesClientConfig config = config();
+        config.setTransport(new InMemoryTransport((method, url, body) -> {
+            throw new IOException("Connection refused");
+        }));
+
+        assertEquals(500, new PostcodesClient(config).lookupPostcode("SW1A 1AA").getStatus());
+    }
+
+    @Test
+    public void testExpiredPostcodesAreServedWhileCircuitIsOpen() throws InterruptedException {
+        AtomicBoolean down = new AtomicBoolean();
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setTransport(new InMemoryTransport((method, url, body) -> {
+            if (down.get()) {
+                throw new IOException("Connection refused");
+            }
+            return responder.respond(method, url, body);
+        }));
+        config.setCacheEnabled(true);
+        config.setCacheTtlMillis(1);
+        config.setStaleCacheTtlMillis(60000);
+        config.setCircuitBreakerEnabled(true);
+        config.setCircuitBreakerOpenMillis(50);
+        PostcodesClient client = new PostcodesClient(config);
+
+        client.lookupPostcode("SW1A 1AA");
+        Thread.sleep(5);
+        down.set(true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(500, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+        }
+        assertEquals(CircuitBreakerTransport.State.OPEN, client.getCircuitBreakerState());
+
+        Response<PostcodeVO> stale = client.lookupPostcode("SW1A 1AA");
+        assertEquals(200, stale.getStatus());
+        assertEquals("SW1A 1AA", stale.getData().getPostcode());
+        assertEquals(1, requests.size());
+
+        // the trial request closes the circuit and the stale postcode is refreshed in the background
+        Thread.sleep(60);
+        down.set(false);
+        assertEquals(404, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+        assertEquals(CircuitBreakerTransport.State.CLOSED, client.getCircuitBreakerState());
+        for (int i = 0; i < 100 && requests.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(requests.get(2).startsWith("POST http://api.postcodes.io/postcodes/ {\"postcodes\":[\"SW1A1AA\"]}"));
+    }
+
+    @Test
+    public void testMetricsListenerSeesEveryRequestAndCacheLookup() {
+        List<RequestMetrics> completed = Collections.synchronizedList(new ArrayList<>());
+        List<String> cacheLookups = new ArrayList<>();
+        PostcodesClientConfig config = config();
+        config.setCacheEnabled(true);
+        config.setMetricsListener(new PostcodesMetricsListener() {
+            @Override
+            public void requestCompleted(RequestMetrics metrics) {
+                completed.add(metrics);
+            }
+
+            @Override
+            public void cacheLookups(Endpoint endpoint, int hits, int misses) {
+                cacheLookups.add(endpoint + " " + hits + "/" + misses);
+            }
+        });
+        PostcodesClient client = new PostcodesClient(config);
+
+        client.lookupPostcode("SW1A 1AA");
+        client.bulkPostcodeLookup(Arrays.asList("SW1A 1AA", "ZZ1 1ZZ", "M1 1AE"));
+
+        assertEquals(2, completed.size());
+        RequestMetrics lookup = completed.get(0);
+        assertEquals(Endpoint.LOOKUP_POSTCODE, lookup.getEndpoint());
+        assertEquals(200, lookup.getStatusCode());
+        assertEquals(0, lookup.getRequestBytes());
+        assertTrue(lookup.getResponseBytes() > 0);
+        assertTrue(lookup.getTotalNanos() >= lookup.getWaitNanos() + lookup.getParseNanos());
+        RequestMetrics bulk = completed.get(1);
+        assertEquals(Endpoint.BULK_LOOKUP_POSTCODES, bulk.getEndpoint());
+        assertEquals(2, bulk.getBatchSize());
+        assertEquals("{\"postcodes\":[\"ZZ11ZZ\",\"M11AE\"]}".length(), bulk.getRequestBytes());
+        assertEquals(Arrays.asList("LOOKUP_POSTCODE 0/1", "BULK_LOOKUP_POSTCODES 1/2"), cacheLookups);
+    }
+
+    @Test
+    public void testFirstHandledResponseOfAHedgedRequestIsMeasured() {
+        List<RequestMetrics> completed = new ArrayList<>();
+        PostcodesClientConfig config = config();
+        // answers like a hedged request whose losing response is handled after the winning one
+        config.setTransport(new PostcodesTransport() {
+            @Override
+            public <T> T get(String url, BodyHandler<T> handler) throws IOException {
+                T winner = handler.handle(200, new ByteArrayInputStream("{\"status\":200,\"result\":{\"postcode\":\"SW1A 1AA\"}}".getBytes(StandardCharsets.UTF_8)));
+                handler.handle(503, null);
+                return winner;
+            }
+
+            @Override
+            public <T> T post(String url, JsonRequestBody body, BodyHandler<T> handler) throws IOException {
+                throw new IOException("Not expected");
+            }
+        });
+        config.setMetricsListener(new PostcodesMetricsListener() {
+            @Override
+            public void requestCompleted(RequestMetrics metrics) {
+                completed.add(metrics);
+            }
+        });
+
+        assertEquals(200, new PostcodesClient(config).lookupPostcode("SW1A 1AA").getStatus());
+
+        assertEquals(1, completed.size());
+        assertEquals(200, completed.get(0).getStatusCode());
+        assertTrue(completed.get(0).getResponseBytes() > 0);
+    }
+
+    @Test
+    public void testMalformedResponseIsReportedAsAFailedRequest() {
+        List<String> started = new ArrayList<>();
+        List<RequestMetrics> completed = new ArrayList<>();
+        PostcodesClientConfig config = config();
+        config.setTransport(new InMemoryTransport((method, url, body) -> new StubResponse(200, "{\"status\":200,\"result\":[1]}")));
+        config.setMetricsListener(new PostcodesMetricsListener() {
+            @Override
+            public void requestStarted(Endpoint endpoint) {
+                started.add(endpoint.name());
+            }
+
+            @Override
+            public void requestCompleted(RequestMetrics metrics) {
+                completed.add(metrics);
+            }
+        });
+        PostcodesClient client = new PostcodesClient(config);
+
+        try {
+            client.lookupPostcode("SW1A 1AA");
+            fail("Expected the malformed body to fail the lookup");
+        } catch (JsonParseException expected) {
+        }
+
+        assertEquals(Arrays.asList("LOOKUP_POSTCODE"), started);
+        assertEquals(1, completed.size());
+        assertTrue(completed.get(0).isFailed());
+        assertTrue(completed.get(0).getResponseBytes() > 0);
+    }
+
+    @Test
+    public void testCacheLookupsCountEveryPostcodeOnceAndNegativeHitsAsHits() {
+        List<String> cacheLookups = new ArrayList<>();
+        PostcodesClientConfig config = config();
+        config.setCacheEnabled(true);
+        config.setNegativeCacheEnabled(true);
+        config.setMetricsListener(new PostcodesMetricsListener() {
+            @Override
+            public void cacheLookups(Endpoint endpoint, int hits, int misses) {
+                cacheLookups.add(endpoint + " " + hits + "/" + misses);
+            }
+        });
+        PostcodesClient client = new PostcodesClient(config);
+
+        client.lookupPostcode("ZZ1 1ZZ");
+        client.lookupPostcode("ZZ1 1ZZ");
+        client.lookupPostcode("not a postcode");
+        client.bulkPostcodeLookup(Arrays.asList("ZZ1 1ZZ", "SW1A 1AA", "sw1a1aa", "not a postcode"));
+        client.validatePostcode("zz11zz");
+
+        assertEquals(Arrays.asList("LOOKUP_POSTCODE 0/1", "LOOKUP_POSTCODE 1/0", "BULK_LOOKUP_POSTCODES 1/2",
+                "VALIDATE_POSTCODE 1/0"), cacheLookups);
+    }
+
+    @Test
+    public void testCloseShutsDownOnlyTheExecutorsTheClientCreated() throws IOException {
+        List<String> postcodes = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            postcodes.add(String.format("AB1 %d%c%c", i / 100, 'A' + i / 10 % 10, 'A' + i % 10));
+        }
+        PostcodesClient owning = new PostcodesClient(config());
+        owning.close();
+        try {
+            owning.bulkPostcodeLookup(postcodes);
+            fail("Expected the bulk executor to be shut down");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        ExecutorService supplied = Executors.newSingleThreadExecutor();
+        try {
+            PostcodesClientConfig config = config();
+            config.setBulkExecutor(supplied);
+            PostcodesClient borrowing = new PostcodesClient(config);
+            borrowing.close();
+            assertFalse(supplied.isShutdown());
+            assertEquals(200, borrowing.bulkPostcodeLookup(postcodes).getStatus());
+        } finally {
+            supplied.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseFailsLookupsWaitingToBeCoalesced() throws Exception {
+        PostcodesClientConfig config = config();
+        config.setCoalescingEnabled(true);
+        config.setCoalescingWindowMillis(60000);
+        PostcodesClient client = new PostcodesClient(config);
+        CompletableFuture<Response<PostcodeVO>> lookup = CompletableFuture.supplyAsync(() -> client.lookupPostcode("SW1A 1AA"));
+        Thread.sleep(100);
+
+        client.close();
+
+        try {
+            lookup.get(5, TimeUnit.SECONDS);
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(requests.isEmpty());
+    }
+
+    private PostcodesClientConfig config() {
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setTransport(transport);
+        return config;
+    }
+}
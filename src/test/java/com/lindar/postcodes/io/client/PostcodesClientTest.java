@@ -110,8 +110,8 @@ public class PostcodesClientTest {
         double longitude = 0.0;
         double latitude = 0.0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.reverseGeocoding(longitude, latitude);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.reverseGeocoding(longitude, latitude);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -127,8 +127,8 @@ public class PostcodesClientTest {
         double latitude = 0.0;
         int limit = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.reverseGeocoding(longitude, latitude, limit);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.reverseGeocoding(longitude, latitude, limit);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -145,8 +145,8 @@ public class PostcodesClientTest {
         int limit = 0;
         int radius = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.reverseGeocoding(longitude, latitude, limit, radius);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.reverseGeocoding(longitude, latitude, limit, radius);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -162,8 +162,8 @@ public class PostcodesClientTest {
         double latitude = 0.0;
         boolean wideSearch = false;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.reverseGeocoding(longitude, latitude, wideSearch);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.reverseGeocoding(longitude, latitude, wideSearch);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -206,8 +206,8 @@ public class PostcodesClientTest {
         System.out.println("validatePostcode");
         String postcode = "";
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.validatePostcode(postcode);
+        Response<Boolean> expResult = null;
+        Response<Boolean> result = instance.validatePostcode(postcode);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -221,8 +221,8 @@ public class PostcodesClientTest {
         System.out.println("nearestPostcodesForPostcode");
         String postcode = "";
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.nearestPostcodesForPostcode(postcode);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.nearestPostcodesForPostcode(postcode);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -237,8 +237,8 @@ public class PostcodesClientTest {
         String postcode = "";
         int limit = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.nearestPostcodesForPostcode(postcode, limit);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.nearestPostcodesForPostcode(postcode, limit);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -254,8 +254,8 @@ public class PostcodesClientTest {
         int limit = 0;
         int radius = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.nearestPostcodesForPostcode(postcode, limit, radius);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.nearestPostcodesForPostcode(postcode, limit, radius);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -269,8 +269,8 @@ public class PostcodesClientTest {
         System.out.println("autocompletePartialPostcode");
         String partialPostcode = "";
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.autocompletePartialPostcode(partialPostcode);
+        Response<List<String>> expResult = null;
+        Response<List<String>> result = instance.autocompletePartialPostcode(partialPostcode);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -285,8 +285,8 @@ public class PostcodesClientTest {
         String partialPostcode = "";
         int limit = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.autocompletePartialPostcode(partialPostcode, limit);
+        Response<List<String>> expResult = null;
+        Response<List<String>> result = instance.autocompletePartialPostcode(partialPostcode, limit);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -300,8 +300,8 @@ public class PostcodesClientTest {
         System.out.println("queryForPostcode");
         String postcode = "";
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.queryForPostcode(postcode);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.queryForPostcode(postcode);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
@@ -316,8 +316,8 @@ public class PostcodesClientTest {
         String postcode = "";
         int limit = 0;
         PostcodesClient instance = new PostcodesClient();
-        Response<PostcodeVO> expResult = null;
-        Response<PostcodeVO> result = instance.queryForPostcode(postcode, limit);
+        Response<List<PostcodeVO>> expResult = null;
+        Response<List<PostcodeVO>> result = instance.queryForPostcode(postcode, limit);
         assertEquals(expResult, result);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
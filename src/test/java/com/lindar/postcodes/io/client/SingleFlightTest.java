@@ -0,0 +1,109 @@
+package com.lindar.postcodes.io.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentIdenticalCallsShareOneCall() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object shared = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("SW1A1AA", () -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return shared;
+                }), executor));
+                if (i == 0) {
+                    started.await();
+                }
+            }
+            awaitWaiting(singleFlight, "SW1A1AA", 7);
+            release.countDown();
+
+            for (CompletableFuture<Object> result : results) {
+                assertSame(shared, result.get());
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitersAreReleasedWhenTheCallThrowsAnError() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Error error = new Error("Out of something");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Object> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("SW1A1AA", () -> {
+                started.countDown();
+                await(release);
+                throw error;
+            }), executor);
+            started.await();
+            CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> singleFlight.execute("SW1A1AA", Object::new), executor);
+            awaitWaiting(singleFlight, "SW1A1AA", 1);
+            release.countDown();
+
+            for (CompletableFuture<Object> result : Arrays.asList(leader, waiter)) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("Expected the error to reach every caller");
+                } catch (ExecutionException ex) {
+                    assertSame(error, ex.getCause());
+                }
+            }
+            assertEquals(0, singleFlight.waiting("SW1A1AA"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsAreNotShared() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), singleFlight.execute("key", calls::incrementAndGet));
+        assertEquals(Integer.valueOf(2), singleFlight.execute("key", calls::incrementAndGet));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitWaiting(SingleFlight<String, ?> singleFlight, String key, int waiting) throws InterruptedException {
+        while (singleFlight.waiting(key) < waiting) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.lindar.postcodes.io.client.batch;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.PostcodesClientConfig;
+import com.lindar.postcodes.io.client.offline.OfflinePostcodeIndex;
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author iulian
+ */
+public class CsvEnricherTest {
+
+    private static final String POSTCODES_CSV = "postcode,latitude,admin_district\n"
+            + "SW1A 1AA,51.501009,Westminster\n"
+            + "M1 1AE,53.479308,\"Manchester, City of\"\n";
+
+    private static final String INPUT = "id,Postcode\n"
+            + "1,sw1a1aa\n"
+            + "2,\"M1 1AE\"\n"
+            + "3,not a postcode\n"
+            + "4,SW1A 1AA\n"
+            + "5,ZZ1 1ZZ\n";
+
+    private static final String OUTPUT = "id,Postcode,latitude,admin_district\n"
+            + "1,sw1a1aa,51.501009,Westminster\n"
+            + "2,\"M1 1AE\",53.479308,\"Manchester, City of\"\n"
+            + "3,not a postcode,,\n"
+            + "4,SW1A 1AA,51.501009,Westminster\n"
+            + "5,ZZ1 1ZZ,,\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CsvEnricher enricher;
+    private CsvEnrichmentConfig config;
+
+    @Before
+    public void setUp() throws IOException {
+        PostcodesClientConfig clientConfig = new PostcodesClientConfig();
+        clientConfig.setOfflineIndex(OfflinePostcodeIndex.load(new StringReader(POSTCODES_CSV)));
+        enricher = new CsvEnricher(new PostcodesClient(clientConfig));
+
+        config = new CsvEnrichmentConfig();
+        config.setInput(folder.newFile("input.csv").toPath());
+        config.setOutput(folder.getRoot().toPath().resolve("output.csv"));
+        config.setFields(Arrays.asList(PostcodeField.LATITUDE, PostcodeField.ADMIN_DISTRICT));
+        config.setBatchSize(2);
+        Files.write(config.getInput(), INPUT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEnrichAppendsFieldsToEveryRow() throws IOException {
+        EnrichmentProgress progress = enricher.enrich(config);
+
+        assertEquals(OUTPUT, read(config.getOutput()));
+        assertEquals(5, progress.getRowsWritten());
+        assertEquals(3, progress.getRowsEnriched());
+        assertEquals(4, progress.getPostcodesLookedUp());
+    }
+
+    @Test
+    public void testEnrichResumesFromCheckpoint() throws IOException {
+        Path checkpoint = folder.getRoot().toPath().resolve("output.checkpoint");
+        config.setCheckpoint(checkpoint);
+        config.setProgressListener(progress -> {
+            if (progress.getRowsWritten() == 4) {
+                throw new IllegalStateException("stopped");
+            }
+        });
+        try {
+            enricher.enrich(config);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(Files.exists(checkpoint));
+        }
+        // simulate a crash after the second batch was written but before its checkpoint
+        Files.write(config.getOutput(), "garbage\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        config.setProgressListener(null);
+        EnrichmentProgress progress = enricher.enrich(config);
+
+        assertEquals(OUTPUT, read(config.getOutput()));
+        assertEquals(5, progress.getRowsWritten());
+        assertEquals(1, progress.getRowsWrittenThisRun());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    public void testCoordinatesNearZeroAreWrittenInPlainNotation() throws IOException {
+        PostcodesClientConfig clientConfig = new PostcodesClientConfig();
+        clientConfig.setOfflineIndex(OfflinePostcodeIndex.load(new StringReader("postcode,longitude,latitude\n"
+                + "SE10 8XJ,-0.000562,51.4779\n")));
+        Files.write(config.getInput(), "id,Postcode\n1,SE10 8XJ\n".getBytes(StandardCharsets.UTF_8));
+        config.setFields(Arrays.asList(PostcodeField.LONGITUDE, PostcodeField.LATITUDE));
+
+        new CsvEnricher(new PostcodesClient(clientConfig)).enrich(config);
+
+        assertEquals("id,Postcode,longitude,latitude\n1,SE10 8XJ,-0.000562,51.4779\n", read(config.getOutput()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPostcodeColumnIsRejected() throws IOException {
+        config.setPostcodeColumn("post_code");
+        enricher.enrich(config);
+    }
+
+    private static String read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        return String.join("\n", lines) + "\n";
+    }
+}
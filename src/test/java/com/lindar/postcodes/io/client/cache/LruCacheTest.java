@@ -0,0 +1,99 @@
+package com.lindar.postcodes.io.client.cache;
+
+import com.lindar.postcodes.io.client.vo.CacheStats;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class LruCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        LruCache<String, String> cache = new LruCache<>(2, 1000, value -> 1, now::get);
+        cache.put("A", "a");
+        cache.put("B", "b");
+        cache.get("A");
+        cache.put("C", "c");
+
+        assertEquals("a", cache.get("A"));
+        assertNull(cache.get("B"));
+        assertEquals("c", cache.get("C"));
+        assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        LruCache<String, String> cache = new LruCache<>(10, 1000, value -> 1, now::get);
+        cache.put("A", "a");
+        now.set(999);
+        assertEquals("a", cache.get("A"));
+        now.set(1000);
+        assertNull(cache.get("A"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0, stats.getSize());
+        assertEquals(0.5, stats.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testWeightBound() {
+        LruCache<String, String> cache = new LruCache<>(5, 1000, String::length, now::get);
+        cache.put("A", "aaa");
+        cache.put("B", "bb");
+        cache.put("C", "cc");
+        cache.put("D", "dddddd");
+
+        assertNull(cache.get("A"));
+        assertEquals("bb", cache.get("B"));
+        assertEquals("cc", cache.get("C"));
+        assertNull(cache.get("D"));
+        assertEquals(4, cache.stats().getWeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeigherReturningZeroIsRejected() {
+        LruCache<String, String> cache = new LruCache<>(5, 1000, String::length, now::get);
+        cache.put("A", "");
+    }
+
+    @Test
+    public void testLargeCacheIsSegmentedWithinItsMaximumSize() {
+        LruCache<String, String> cache = new LruCache<>(10000, 1000, value -> 1, now::get);
+        assertEquals(LruCache.MAX_SEGMENTS, cache.segmentCount());
+        assertEquals(1, new LruCache<String, String>(100, 1000, value -> 1, now::get).segmentCount());
+
+        for (int i = 0; i < 30000; i++) {
+            cache.put("K" + i, "v");
+        }
+
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getSize() <= 10000);
+        assertTrue(stats.getSize() > 9000);
+        assertEquals(stats.getSize(), stats.getWeight());
+        assertEquals(30000 - stats.getSize(), stats.getEvictionCount());
+        assertEquals("v", cache.get("K29999"));
+        assertNull(cache.get("K0"));
+    }
+
+    @Test
+    public void testExpiredEntriesStayReadableAsStaleForStaleTtl() {
+        LruCache<String, String> cache = new LruCache<>(10, 1000, 500, value -> 1, now::get);
+        cache.put("A", "a");
+        now.set(1200);
+        assertNull(cache.get("A"));
+        assertEquals("a", cache.getStale("A"));
+        assertEquals(1, cache.stats().getSize());
+
+        now.set(1500);
+        assertNull(cache.getStale("A"));
+        assertEquals(0, cache.stats().getSize());
+    }
+}
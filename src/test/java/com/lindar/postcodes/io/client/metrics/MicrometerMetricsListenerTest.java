@@ -0,0 +1,37 @@
+package com.lindar.postcodes.io.client.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class MicrometerMetricsListenerTest {
+
+    @Test
+    public void testRecordsRequestsPerEndpointAndStatus() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerMetricsListener listener = new MicrometerMetricsListener(registry);
+
+        listener.requestStarted(Endpoint.BULK_LOOKUP_POSTCODES);
+        assertEquals(1, registry.get("postcodes.io.client.in.flight").tag("endpoint", "BULK_LOOKUP_POSTCODES").gauge().value(), 0);
+        listener.requestCompleted(new RequestMetrics(Endpoint.BULK_LOOKUP_POSTCODES, 200,
+                TimeUnit.MILLISECONDS.toNanos(30), TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(36), 120, 4000, 10));
+        listener.cacheLookups(Endpoint.BULK_LOOKUP_POSTCODES, 3, 10);
+
+        assertEquals(0, registry.get("postcodes.io.client.in.flight").tag("endpoint", "BULK_LOOKUP_POSTCODES").gauge().value(), 0);
+        assertEquals(36, registry.get("postcodes.io.client.requests").tags("endpoint", "BULK_LOOKUP_POSTCODES", "status", "200")
+                .timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(30, registry.get("postcodes.io.client.request.phase").tags("endpoint", "BULK_LOOKUP_POSTCODES", "phase", "wait")
+                .timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(4000, registry.get("postcodes.io.client.response.bytes").tag("endpoint", "BULK_LOOKUP_POSTCODES")
+                .summary().totalAmount(), 0);
+        assertEquals(10, registry.get("postcodes.io.client.batch.size").tag("endpoint", "BULK_LOOKUP_POSTCODES")
+                .summary().totalAmount(), 0);
+        assertEquals(3, registry.get("postcodes.io.client.cache").tags("endpoint", "BULK_LOOKUP_POSTCODES", "result", "hit")
+                .counter().count(), 0);
+    }
+}
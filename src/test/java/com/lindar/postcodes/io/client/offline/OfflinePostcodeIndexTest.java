@@ -0,0 +1,138 @@
+package com.lindar.postcodes.io.client.offline;
+
+import com.lindar.postcodes.io.client.PostcodesClient;
+import com.lindar.postcodes.io.client.PostcodesClientConfig;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class OfflinePostcodeIndexTest {
+
+    private static final String POSTCODES_IO_CSV = "postcode,eastings,northings,longitude,latitude,admin_district,codes.admin_district\n"
+            + "SW1A 1AA,529090,179645,-0.141588,51.501009,Westminster,E09000033\n"
+            + "\"M1 1AE\",384473,398229,-2.235638,53.479308,\"Manchester, City of\",E08000003\n";
+
+    private static final String ONSPD_CSV = "pcd,pcd2,pcds,dointr,doterm,oslaua,oseast1m,osnrth1m,ctry,rgn,pcon,eer,lat,long\n"
+            + "\"AB1 0AA\",\"AB1  0AA\",\"AB1 0AA\",\"198001\",\"199606\",\"S12000033\",\"385386\",\"0801193\",\"S92000003\",\"S99999999\",\"S14000002\",\"S15000001\",57.101474,-2.242851\n"
+            + "\"AB101AB\",\"AB10 1AB\",\"AB10 1AB\",\"200012\",\"\",\"S12000033\",\"394235\",\"0806529\",\"S92000003\",\"S99999999\",\"S14000002\",\"S15000001\",57.149606,-2.096916\n";
+
+    @Test
+    public void testLoadPostcodesIoExport() throws IOException {
+        OfflinePostcodeIndex index = OfflinePostcodeIndex.load(new StringReader(POSTCODES_IO_CSV));
+
+        assertEquals(2, index.size());
+        PostcodeVO postcode = index.lookup("sw1a1aa");
+        assertEquals("SW1A 1AA", postcode.getPostcode());
+        assertEquals(-0.141588, postcode.getLongitude(), 0);
+        assertEquals("Westminster", postcode.getAdminDistrict());
+        assertEquals("E09000033", postcode.getCodes().getAdminDistrict());
+        assertEquals("SW1A", postcode.getOutcode());
+        assertEquals("1AA", postcode.getIncode());
+        assertEquals(postcode, index.lookup("SW1A 1AA"));
+        assertNotSame(postcode, index.lookup("SW1A 1AA"));
+        assertEquals("Manchester, City of", index.lookup("M1 1AE").getAdminDistrict());
+        assertNull(index.lookup("M1 1AF"));
+    }
+
+    @Test
+    public void testLoadOnsPostcodeDirectorySkipsTerminatedPostcodes() throws IOException {
+        OfflinePostcodeIndex index = OfflinePostcodeIndex.load(new StringReader(ONSPD_CSV));
+
+        assertEquals(1, index.size());
+        assertFalse(index.contains("AB1 0AA"));
+        PostcodeVO postcode = index.lookup("AB10 1AB");
+        assertEquals(394235, postcode.getEastings());
+        assertEquals(806529, postcode.getNorthings());
+        assertEquals("Scotland", postcode.getCountry());
+        assertEquals("Scotland", postcode.getEuropeanElectoralRegion());
+        assertNull(postcode.getRegion());
+        assertNull(postcode.getAdminDistrict());
+        assertEquals("S12000033", postcode.getCodes().getAdminDistrict());
+        assertNull(postcode.getParliamentaryConstituency());
+        assertEquals("S14000002", postcode.getCodes().getParliamentaryConstituency());
+    }
+
+    @Test
+    public void testClientServesLookupsFromOfflineIndex() throws IOException {
+        PostcodesClientConfig config = new PostcodesClientConfig();
+        config.setOfflineIndex(OfflinePostcodeIndex.load(new StringReader(POSTCODES_IO_CSV)));
+        PostcodesClient client = new PostcodesClient(config);
+
+        assertEquals(200, client.lookupPostcode("SW1A 1AA").getStatus());
+        assertEquals(404, client.lookupPostcode("ZZ1 1ZZ").getStatus());
+        assertTrue(client.validatePostcode("m11ae").getData());
+        assertFalse(client.validatePostcode("ZZ1 1ZZ").getData());
+
+        Response<List<MultiResponse<String, PostcodeVO>>> bulk = client.bulkPostcodeLookup(Arrays.asList("M1 1AE", "ZZ1 1ZZ"));
+        assertEquals(200, bulk.getStatus());
+        assertEquals("M1 1AE", bulk.getData().get(0).getResults().get(0).getPostcode());
+        assertNull(bulk.getData().get(1).getResults());
+
+        assertEquals("SW1A 1AA", client.reverseGeocoding(-0.1416, 51.501).getData().get(0).getPostcode());
+        assertNull(client.reverseGeocoding(1.0, 60.0).getData());
+    }
+
+    @Test
+    public void testNearestHonoursRadiusLimitAndWideSearch() {
+        List<PostcodeVO> postcodes = new ArrayList<>();
+        // a row of postcodes 40m apart going north from 51.5N 0.1W
+        for (int i = 0; i < 30; i++) {
+            postcodes.add(postcode("AA1 " + (i / 10) + "A" + (char) ('A' + i % 10), -0.1, 51.5 + i * 40 / 111195.0));
+        }
+        postcodes.add(postcode("ZZ9 9ZZ", -0.1, 51.6));
+        OfflinePostcodeIndex index = OfflinePostcodeIndex.of(postcodes);
+
+        List<PostcodeVO> nearest = index.nearest(-0.1, 51.5, 0, 0, false);
+        assertEquals(3, nearest.size());
+        assertEquals("AA1 0AA", nearest.get(0).getPostcode());
+        assertEquals("AA1 0AC", nearest.get(2).getPostcode());
+        assertEquals(51.5, nearest.get(0).getLatitude(), 0);
+        assertNull(nearest.get(0).getCodes());
+
+        assertEquals(2, index.nearest(-0.1, 51.5, 2, 2000, false).size());
+        assertEquals(30, index.nearest(-0.1, 51.5, 100, 2000, false).size());
+        assertTrue(index.nearest(-0.1, 51.6 + 0.01, 10, 500, false).isEmpty());
+
+        List<PostcodeVO> wide = index.nearest(-0.1, 51.6 + 0.01, 50, 0, true);
+        assertEquals(10, wide.size());
+        assertEquals("ZZ9 9ZZ", wide.get(0).getPostcode());
+        assertEquals("AA1 2AJ", wide.get(1).getPostcode());
+    }
+
+    @Test
+    public void testAutocompleteMatchesPrefixIgnoringCase() {
+        OfflinePostcodeIndex index = OfflinePostcodeIndex.of(Arrays.asList(
+                postcode("SW1A 2AA", 0, 0), postcode("SW1A 1AA", 0, 0), postcode("SW1A 0AA", 0, 0),
+                postcode("SW1 1AA", 0, 0), postcode("SW11 1AB", 0, 0), postcode("SW2 1AA", 0, 0)));
+
+        assertEquals(Arrays.asList("SW1A 0AA", "SW1A 1AA", "SW1A 2AA"), index.autocomplete("sw1a", 0));
+        assertEquals(Arrays.asList("SW1 1AA"), index.autocomplete(" SW1 ", 2));
+        assertEquals(Arrays.asList("SW1 1AA"), index.autocomplete("SW1 1", 10));
+        assertEquals(Arrays.asList("SW11 1AB"), index.autocomplete("sw11  1", 10));
+        assertEquals(Arrays.asList("SW11 1AB", "SW1 1AA"), index.autocomplete("SW11", 10));
+        assertEquals(Arrays.asList("SW1A 1AA"), index.autocomplete("SW1A 1", 10));
+        assertEquals(Arrays.asList("SW1A 1AA"), index.autocomplete("\tsw1a 1 a", 10));
+        assertTrue(index.autocomplete("SW3", 10).isEmpty());
+        assertTrue(index.autocomplete("SW2 1AAB", 10).isEmpty());
+        assertTrue(index.autocomplete(" ", 10).isEmpty());
+    }
+
+    private static PostcodeVO postcode(String postcode, double longitude, double latitude) {
+        PostcodeVO postcodeVO = new PostcodeVO();
+        postcodeVO.setPostcode(postcode);
+        postcodeVO.setLongitude(longitude);
+        postcodeVO.setLatitude(latitude);
+        return postcodeVO;
+    }
+}
@@ -0,0 +1,71 @@
+package com.lindar.postcodes.io.client.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class AdaptiveConcurrencyTransportTest {
+
+    @Test
+    public void testLimitShrinksOnOverloadAndRecovers() throws Exception {
+        AtomicInteger status = new AtomicInteger(429);
+        AdaptiveConcurrencyTransport transport = new AdaptiveConcurrencyTransport(
+                new InMemoryTransport((method, url, body) -> {
+                    if (status.get() == 200) {
+                        sleep(2);
+                    }
+                    return new InMemoryTransport.StubResponse(status.get(), null);
+                }), 10, 2, 20);
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(429, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        }
+        assertEquals(2, transport.getLimit());
+
+        // the limit only grows while callers use it, so keep it busy from 8 threads
+        status.set(200);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            responses.add(executor.submit(() -> transport.get("http://localhost/", (statusCode, body) -> statusCode)));
+        }
+        for (Future<Integer> response : responses) {
+            assertEquals(200, (int) response.get());
+        }
+        executor.shutdown();
+        assertTrue(transport.getLimit() > 2);
+        assertEquals(0, transport.getInFlight());
+    }
+
+    @Test
+    public void testFailuresShrinkTheLimit() {
+        AdaptiveConcurrencyTransport transport = new AdaptiveConcurrencyTransport(new InMemoryTransport((method, url, body) -> {
+            throw new IOException("connection refused");
+        }));
+        try {
+            transport.get("http://localhost/", (statusCode, body) -> statusCode);
+            fail();
+        } catch (IOException ex) {
+            assertEquals(9, transport.getLimit());
+            assertEquals(0, transport.getInFlight());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.lindar.postcodes.io.client.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class CircuitBreakerTransportTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger status = new AtomicInteger(503);
+    private final InMemoryTransport delegate = new InMemoryTransport((method, url, body) -> new InMemoryTransport.StubResponse(status.get(), null));
+
+    @Test
+    public void testOpensOnFailuresAndClosesAfterSuccessfulTrial() throws IOException {
+        CircuitBreakerTransport transport = new CircuitBreakerTransport(delegate, 50, 1000, 30000, now::get);
+        List<CircuitBreakerTransport.State> changes = new ArrayList<>();
+        transport.addListener(changes::add);
+
+        for (int i = 0; i < 10; i++) {
+            send(transport);
+        }
+        assertEquals(CircuitBreakerTransport.State.OPEN, transport.getState());
+        assertFailsFast(transport);
+        assertEquals(10, delegate.getRequestCount());
+
+        // the trial fails and the circuit opens again
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(CircuitBreakerTransport.State.HALF_OPEN, transport.getState());
+        send(transport);
+        assertEquals(CircuitBreakerTransport.State.OPEN, transport.getState());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        status.set(200);
+        send(transport);
+        assertEquals(CircuitBreakerTransport.State.CLOSED, transport.getState());
+        assertEquals(12, delegate.getRequestCount());
+        assertEquals(5, changes.size());
+        assertEquals(CircuitBreakerTransport.State.CLOSED, changes.get(4));
+    }
+
+    @Test
+    public void testSlowCallsCountAsFailures() throws IOException {
+        CircuitBreakerTransport transport = new CircuitBreakerTransport(new InMemoryTransport((method, url, body) -> {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            return new InMemoryTransport.StubResponse(200, null);
+        }), 50, 1000, 30000, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send(transport));
+        }
+        assertFailsFast(transport);
+    }
+
+    private static int send(CircuitBreakerTransport transport) throws IOException {
+        return transport.get("http://localhost/", (statusCode, body) -> statusCode);
+    }
+
+    private static void assertFailsFast(CircuitBreakerTransport transport) throws IOException {
+        try {
+            send(transport);
+            fail();
+        } catch (CircuitBreakerTransport.CircuitOpenException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lindar.postcodes.io.client.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class HedgingTransportTest {
+
+    private static final int WARM_UP_REQUESTS = 32;
+
+    @Test
+    public void testSlowRequestIsHedgedAndFirstAnswerWins() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryTransport delegate = new InMemoryTransport((method, url, body) -> {
+            if (calls.incrementAndGet() == WARM_UP_REQUESTS + 1) {
+                await(release);
+                return new InMemoryTransport.StubResponse(200, "slow");
+            }
+            return new InMemoryTransport.StubResponse(200, "fast");
+        });
+        try (HedgingTransport transport = new HedgingTransport(delegate, 95, new RetryBudget())) {
+            // the warm up runs on this thread before there is a delay, so none of it is hedged
+            for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                transport.get("http://localhost/", (statusCode, body) -> statusCode);
+            }
+            assertEquals(WARM_UP_REQUESTS, delegate.getRequestCount());
+            assertTrue(transport.getHedgeDelayMillis() >= 0);
+
+            String answer = transport.get("http://localhost/", (statusCode, body) -> body.read() == 'f' ? "fast" : "slow");
+
+            assertEquals("fast", answer);
+            assertEquals(WARM_UP_REQUESTS + 2, delegate.getRequestCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorThrownByAPooledRequestReachesTheCaller() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        InMemoryTransport delegate = new InMemoryTransport((method, url, body) -> {
+            if (calls.incrementAndGet() > WARM_UP_REQUESTS) {
+                throw new OutOfMemoryError("Simulated");
+            }
+            return new InMemoryTransport.StubResponse(200, null);
+        });
+        try (HedgingTransport transport = new HedgingTransport(delegate, 95, new RetryBudget())) {
+            for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                transport.get("http://localhost/", (statusCode, body) -> statusCode);
+            }
+            assertTrue(transport.getHedgeDelayMillis() >= 0);
+            try {
+                transport.get("http://localhost/", (statusCode, body) -> statusCode);
+                fail("Expected the error of the pooled request");
+            } catch (OutOfMemoryError expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testNothingIsHedgedWithoutLatencySamples() throws IOException {
+        Thread caller = Thread.currentThread();
+        InMemoryTransport delegate = new InMemoryTransport((method, url, body) ->
+                new InMemoryTransport.StubResponse(Thread.currentThread() == caller ? 200 : 500, null));
+        try (HedgingTransport transport = new HedgingTransport(delegate)) {
+            assertEquals(200, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+            assertEquals(-1, transport.getHedgeDelayMillis());
+            assertEquals(1, delegate.getRequestCount());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            // bounded, so a missing hedge fails the test instead of hanging it
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.lindar.postcodes.io.client.transport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class RateLimitedTransportTest {
+
+    @Test
+    public void testBurstThenSteadyRate() {
+        AtomicLong now = new AtomicLong();
+        RateLimitedTransport transport = new RateLimitedTransport(InMemoryTransport.fixed(200, null), 10, 2, now::get);
+        long permit = TimeUnit.MILLISECONDS.toNanos(100);
+
+        assertEquals(0, transport.reserve());
+        assertEquals(0, transport.reserve());
+        assertEquals(permit, transport.reserve());
+        assertEquals(2 * permit, transport.reserve());
+
+        // the queued requests used up the refill, the next one waits behind them
+        now.addAndGet(2 * permit);
+        assertEquals(permit, transport.reserve());
+
+        // an idle period never refills more than the burst
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, transport.reserve());
+        assertEquals(0, transport.reserve());
+        assertEquals(permit, transport.reserve());
+    }
+}
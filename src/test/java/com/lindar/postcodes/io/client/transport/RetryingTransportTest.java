@@ -0,0 +1,56 @@
+package com.lindar.postcodes.io.client.transport;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class RetryingTransportTest {
+
+    @Test
+    public void testRetriesFailuresAndRetryableStatuses() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        InMemoryTransport delegate = new InMemoryTransport((method, url, body) -> {
+            switch (calls.incrementAndGet()) {
+                case 1:
+                    throw new IOException("connection reset");
+                case 2:
+                    return new InMemoryTransport.StubResponse(503, null);
+                default:
+                    return new InMemoryTransport.StubResponse(200, "{}");
+            }
+        });
+        RetryingTransport transport = new RetryingTransport(delegate, 2, 0, 0, new RetryBudget());
+
+        assertEquals(200, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        assertEquals(3, delegate.getRequestCount());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetriesOrWhenBudgetIsSpent() throws IOException {
+        InMemoryTransport delegate = InMemoryTransport.fixed(429, null);
+        RetryingTransport transport = new RetryingTransport(delegate, 3, 0, 0, new RetryBudget(0, 5));
+
+        assertEquals(429, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        assertEquals(4, delegate.getRequestCount());
+
+        // 2 tokens left in the budget
+        assertEquals(429, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        assertEquals(7, delegate.getRequestCount());
+        assertEquals(429, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        assertEquals(8, delegate.getRequestCount());
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() throws IOException {
+        InMemoryTransport delegate = InMemoryTransport.fixed(404, null);
+        RetryingTransport transport = new RetryingTransport(delegate);
+
+        assertEquals(404, (int) transport.get("http://localhost/", (statusCode, body) -> statusCode));
+        assertEquals(1, delegate.getRequestCount());
+    }
+}
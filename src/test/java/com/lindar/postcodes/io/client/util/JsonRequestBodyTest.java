@@ -0,0 +1,58 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.lindar.postcodes.io.client.vo.Geolocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class JsonRequestBodyTest {
+
+    @Test
+    public void testBulkPostcodesAreEscaped() throws IOException {
+        String json = write(JsonRequestBody.bulkPostcodes(Arrays.asList("SW1A 1AA", "a\"b\\c", "\u00e9\ud83d\ude00")));
+
+        assertEquals("{\"postcodes\":[\"SW1A 1AA\",\"a\\\"b\\\\c\",\"\u00e9\ud83d\ude00\"]}", json);
+    }
+
+    @Test
+    public void testLargeBodySpansSeveralBuffers() throws IOException {
+        List<String> postcodes = new ArrayList<>(Collections.nCopies(2000, "SW1A 1AA"));
+        String json = write(JsonRequestBody.bulkPostcodes(postcodes));
+
+        assertEquals(2000 * "\"SW1A 1AA\",".length() - 1 + "{\"postcodes\":[]}".length(), json.length());
+    }
+
+    @Test
+    public void testBulkGeolocationsOmitDefaults() throws IOException {
+        Geolocation withDefaults = new Geolocation();
+        withDefaults.setLongitude(-0.141588);
+        withDefaults.setLatitude(51.501009);
+        Geolocation withOptions = new Geolocation();
+        withOptions.setLongitude(-2.235638);
+        withOptions.setLatitude(53.479308);
+        withOptions.setRadius(500);
+        withOptions.setLimit(5);
+        withOptions.setWideSearch(true);
+
+        String json = write(JsonRequestBody.bulkGeolocations(Arrays.asList(withDefaults, withOptions)));
+
+        assertEquals("{\"geolocations\":[{\"longitude\":-0.141588,\"latitude\":51.501009},"
+                + "{\"longitude\":-2.235638,\"latitude\":53.479308,\"radius\":500,\"limit\":5,\"wideSearch\":true}]}", json);
+    }
+
+    private static String write(JsonRequestBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
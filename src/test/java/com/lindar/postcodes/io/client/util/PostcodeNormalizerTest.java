@@ -0,0 +1,42 @@
+package com.lindar.postcodes.io.client.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class PostcodeNormalizerTest {
+
+    @Test
+    public void testAllOutwardCodeFormats() {
+        assertEquals("M1 1AE", PostcodeNormalizer.normalize("m11ae"));
+        assertEquals("B33 8TH", PostcodeNormalizer.normalize("B338TH"));
+        assertEquals("CR2 6XH", PostcodeNormalizer.normalize("cr2 6xh"));
+        assertEquals("DN55 1PT", PostcodeNormalizer.normalize(" DN55  1PT "));
+        assertEquals("W1A 0AX", PostcodeNormalizer.normalize("w1a0ax"));
+        assertEquals("EC1A 1BB", PostcodeNormalizer.normalize("Ec1A\t1bB"));
+    }
+
+    @Test
+    public void testKeyIsCompactAndReusesCanonicalInput() {
+        String canonical = "SW1A1AA";
+        assertSame(canonical, PostcodeNormalizer.key(canonical));
+        assertEquals("SW1A1AA", PostcodeNormalizer.key("sw1a 1aa"));
+        String formatted = "SW1A 1AA";
+        assertSame(formatted, PostcodeNormalizer.normalize(formatted));
+        assertEquals("SW1A", PostcodeNormalizer.outcode(canonical));
+        assertEquals("1AA", PostcodeNormalizer.incode(canonical));
+    }
+
+    @Test
+    public void testStructurallyInvalidInputIsRejected() {
+        String[] invalid = {null, "", "   ", "SW1A", "SW1A 1A", "SW1A 1AAA", "1W1A 1AA", "S11A 1AA",
+            "SWW1 1AA", "SW1AA 1AA", "SW1A A1A", "SW1A-1AA", "SW1A 1A\u00C1", "S\u0661 1AA"};
+        for (String postcode : invalid) {
+            assertNull(postcode, PostcodeNormalizer.key(postcode));
+            assertFalse(postcode, PostcodeNormalizer.isValid(postcode));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.lindar.postcodes.io.client.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class PostcodesAPITest {
+
+    private final PostcodesAPI api = new PostcodesAPI();
+
+    @Test
+    public void testUrlsMatchTheFormattedTemplates() {
+        assertEquals(String.format(api.LOOKUP_POSTCODE, "SW1A1AA"), api.lookupPostcode("SW1A1AA"));
+        assertEquals(String.format(api.VALIDATE_POSTCODE, "SW1A1AA"), api.validatePostcode("SW1A1AA"));
+        assertEquals(String.format(api.NEAREST_POSTCODES_FOR_POSTCODE, "SW1A1AA"), api.nearestPostcodesForPostcode("SW1A1AA", 0, 0));
+        assertEquals(String.format(api.NEAREST_POSTCODES + "&limit=%s&radius=%s", -0.141588, 51.501009, 5, 500),
+                api.nearestPostcodes(-0.141588, 51.501009, 5, 500, false));
+        assertEquals(api.RANDOM_POSTCODE, api.randomPostcode(" "));
+        assertEquals("http://api.postcodes.io/random/postcodes?outcode=SW1A", api.randomPostcode("SW1A"));
+    }
+
+    @Test
+    public void testOptionalParametersAreOnlySentWhenSet() {
+        assertEquals("http://api.postcodes.io/postcodes/SW1A1AA/nearest?radius=500", api.nearestPostcodesForPostcode("SW1A1AA", 0, 500));
+        assertEquals("http://api.postcodes.io/postcodes/SW1A1AA/nearest?limit=5&radius=500", api.nearestPostcodesForPostcode("SW1A1AA", 5, 500));
+        assertEquals("http://api.postcodes.io/postcodes/?lon=1.5&lat=-2.0&wideSearch=true", api.nearestPostcodes(1.5, -2, 0, 0, true));
+        assertEquals("http://api.postcodes.io/postcodes/SW1A/autocomplete?limit=100", api.autocompletePostcode("SW1A", 100));
+        assertEquals("http://api.postcodes.io/postcodes/?q=SW1A&limit=3", api.queryPostcode("SW1A", 3));
+    }
+
+    @Test
+    public void testParametersArePercentEncoded() {
+        assertEquals("http://api.postcodes.io/postcodes/SW1A%201/autocomplete", api.autocompletePostcode(" SW1A 1 ", 0));
+        assertEquals("http://api.postcodes.io/postcodes/?q=a%26limit%3D1%2F%C3%A9%F0%9F%98%80", api.queryPostcode("a&limit=1/\u00e9\ud83d\ude00", 0));
+        assertEquals("http://localhost:8000/postcodes/AB1%200AA", new PostcodesAPI("http://localhost:8000/").lookupPostcode("AB1 0AA"));
+    }
+
+    @Test
+    public void testParametersAreValidated() {
+        assertInvalid(() -> api.lookupPostcode(" "));
+        assertInvalid(() -> api.queryPostcode(null, 0));
+        assertInvalid(() -> api.nearestPostcodesForPostcode("SW1A1AA", 101, 0));
+        assertInvalid(() -> api.nearestPostcodesForPostcode("SW1A1AA", 0, 2001));
+        assertInvalid(() -> api.autocompletePostcode("SW1A", -1));
+        assertInvalid(() -> api.nearestPostcodes(Double.NaN, 51.5, 0, 0, false));
+        assertInvalid(() -> api.nearestPostcodes(-0.14, 90.5, 0, 0, false));
+    }
+
+    private static void assertInvalid(Runnable build) {
+        try {
+            build.run();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.lindar.postcodes.io.client.util;
+
+import com.google.gson.reflect.TypeToken;
+import com.lindar.postcodes.io.client.vo.MultiResponse;
+import com.lindar.postcodes.io.client.vo.PostcodeField;
+import com.lindar.postcodes.io.client.vo.PostcodeVO;
+import com.lindar.postcodes.io.client.vo.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author iulian
+ */
+public class ResponseReaderTest {
+
+    private static final ResponseReader<PostcodeVO> POSTCODE_RESPONSE = new ResponseReader<>(new TypeToken<Response<PostcodeVO>>() {
+    });
+    private static final ResponseReader<List<MultiResponse<String, PostcodeVO>>> BULK_LOOKUP_RESPONSE = new ResponseReader<>(new TypeToken<Response<List<MultiResponse<String, PostcodeVO>>>>() {
+    });
+
+    @Test
+    public void testReadPostcode() throws IOException {
+        Response<PostcodeVO> response = POSTCODE_RESPONSE.read(body("{\"status\":200,\"result\":{\"postcode\":\"SW1A 1AA\",\"outcode\":\"SW1A\","
+                + "\"codes\":{\"admin_district\":\"E09000033\"}}}"), 200);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("SW1A 1AA", response.getData().getPostcode());
+        assertEquals("SW1A", response.getData().getOutcode());
+        assertEquals("E09000033", response.getData().getCodes().getAdminDistrict());
+    }
+
+    @Test
+    public void testCoordinatesAreDecodedOnce() throws IOException {
+        Response<PostcodeVO> response = POSTCODE_RESPONSE.read(body("{\"status\":200,\"result\":{\"postcode\":\"SW1A 1AA\","
+                + "\"eastings\":529090,\"northings\":179645,\"longitude\":-0.141588,\"latitude\":51.501009}}"), 200);
+        Response<PostcodeVO> withoutLocation = POSTCODE_RESPONSE.read(body("{\"status\":200,\"result\":{\"postcode\":\"GY1 1AA\","
+                + "\"eastings\":null,\"northings\":null,\"longitude\":null,\"latitude\":null}}"), 200);
+
+        assertEquals(529090, response.getData().getEastings());
+        assertEquals(179645, response.getData().getNorthings());
+        assertEquals(-0.141588, response.getData().getLongitude(), 0);
+        assertEquals(51.501009, response.getData().getLatitude(), 0);
+        assertTrue(response.getData().hasLocation());
+        assertEquals(PostcodeVO.NO_GRID_REFERENCE, withoutLocation.getData().getEastings());
+        assertTrue(Double.isNaN(withoutLocation.getData().getLongitude()));
+        assertFalse(withoutLocation.getData().hasLocation());
+    }
+
+    @Test
+    public void testProjectionSkipsUnwantedFields() throws IOException {
+        ResponseReader<List<MultiResponse<String, PostcodeVO>>> projected = new ResponseReader<>(new TypeToken<Response<List<MultiResponse<String, PostcodeVO>>>>() {
+        }, EnumSet.of(PostcodeField.POSTCODE, PostcodeField.LATITUDE, PostcodeField.LONGITUDE, PostcodeField.OUTCODE));
+
+        Response<List<MultiResponse<String, PostcodeVO>>> response = projected.read(body("{\"status\":200,\"result\":["
+                + "{\"query\":\"SW1A1AA\",\"result\":{\"postcode\":\"SW1A 1AA\",\"outcode\":\"SW1A\",\"eastings\":529090,"
+                + "\"longitude\":-0.141588,\"latitude\":51.501009,\"admin_district\":\"Westminster\","
+                + "\"codes\":{\"admin_district\":\"E09000033\",\"nuts\":[\"UKI32\"]}}}]}"), 200);
+
+        PostcodeVO postcode = response.getData().get(0).getResults().get(0);
+        assertEquals("SW1A1AA", response.getData().get(0).getQuery());
+        assertEquals("SW1A 1AA", postcode.getPostcode());
+        assertEquals("SW1A", postcode.getOutcode());
+        assertEquals(51.501009, postcode.getLatitude(), 0);
+        assertEquals(PostcodeVO.NO_GRID_REFERENCE, postcode.getEastings());
+        assertNull(postcode.getAdminDistrict());
+        assertNull(postcode.getCodes());
+    }
+
+    @Test
+    public void testAdministrativeFieldsShareOneInstance() throws IOException {
+        String json = "{\"status\":200,\"result\":{\"postcode\":\"%s\",\"admin_district\":\"Westminster\","
+                + "\"codes\":{\"admin_district\":\"E09000033\"}}}";
+        PostcodeVO first = POSTCODE_RESPONSE.read(body(String.format(json, "SW1A 1AA")), 200).getData();
+        PostcodeVO second = POSTCODE_RESPONSE.read(body(String.format(json, "SW1A 2AA")), 200).getData();
+
+        assertSame(first.getAdminDistrict(), second.getAdminDistrict());
+        assertSame(first.getCodes().getAdminDistrict(), second.getCodes().getAdminDistrict());
+        assertNotSame(first.getPostcode(), second.getPostcode());
+    }
+
+    @Test
+    public void testReadBulkLookupWithSingleAndMissingResults() throws IOException {
+        Response<List<MultiResponse<String, PostcodeVO>>> response = BULK_LOOKUP_RESPONSE.read(body("{\"status\":200,\"result\":["
+                + "{\"query\":\"SW1A 1AA\",\"result\":{\"postcode\":\"SW1A 1AA\"}},"
+                + "{\"query\":\"ZZ1 1ZZ\",\"result\":null}]}"), 200);
+
+        assertEquals(2, response.getData().size());
+        assertEquals("SW1A 1AA", response.getData().get(0).getResults().get(0).getPostcode());
+        assertEquals("ZZ1 1ZZ", response.getData().get(1).getQuery());
+        assertNull(response.getData().get(1).getResults());
+    }
+
+    @Test
+    public void testEmptyOrUnparseableErrorBodyKeepsStatus() throws IOException {
+        assertEquals(204, POSTCODE_RESPONSE.read(body(""), 204).getStatus());
+        assertEquals(502, POSTCODE_RESPONSE.read(body("<html>Bad Gateway</html>"), 502).getStatus());
+        assertEquals(404, POSTCODE_RESPONSE.read(body("{\"status\":404,\"error\":\"Postcode not found\"}"), 404).getStatus());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}